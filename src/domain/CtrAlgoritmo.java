@@ -31,6 +31,9 @@ public class CtrAlgoritmo
     private boolean arecatselections = false;
     private boolean arepagselections = false;
     private boolean arefilters = false;
+    // Memoria que ocupa cada clique de Clique Percolation aunque se guarde en
+    // disco (tamaño, solapamientos, union-find y etiquetas)
+    private static final int BYTES_POR_CLIQUE = 64;
 
     /**
      * Constructor por defecto
@@ -148,7 +151,7 @@ public class CtrAlgoritmo
     public Double timeAproximation()
     {
         Double response;
-        int n = this.selections.getCategoriesSelected().size();
+        int n = this.selections.getCategoriesSelectedSize();
         int nn = n * n;
         if(n < 5000)
         {
@@ -202,6 +205,22 @@ public class CtrAlgoritmo
         return this.arefilters;
     }
 
+    /**
+     * Devuelve el factor de cohesion con la mejor modularidad. Girvan-Newman
+     * no se detiene hasta pasar el factor pedido y el pico de modularidad,
+     * asi que es el pico de todo el dendrograma
+     *
+     * @return factor de cohesion o -1 si el algoritmo no lo proporciona
+     */
+    public int getBestP()
+    {
+        if(this.communityAlgorithm instanceof GirvanNewman)
+        {
+            return ((GirvanNewman) this.communityAlgorithm).getBestLevel();
+        }
+        return -1;
+    }
+
     /**
      * Realiza la transformación de un grafo de entrada a un grafo de algoritmo
      *
@@ -255,10 +274,24 @@ public class CtrAlgoritmo
                 communityAlgorithm = new Louvain();
                 break;
             case 2:
-                communityAlgorithm = new GirvanNewman();
+                // Solo se calcula hasta p y el pico de modularidad, obtain
+                // continua si se pide un nivel mayor
+                GirvanNewman gn = new GirvanNewman();
+                gn.setStopMode(GirvanNewman.stopMode.TargetP);
+                gn.setParallel(Runtime.getRuntime().availableProcessors() > 1);
+                communityAlgorithm = gn;
                 break;
             case 3:
-                communityAlgorithm = new CliquePercolation();
+                // Se calculan todos los k de una vez, obtain solo elige el nivel
+                CliquePercolation cp = new CliquePercolation();
+                cp.setMultiK(true);
+                cp.setParallel(Runtime.getRuntime().availableProcessors() > 1);
+                // Si las cliques no caben en memoria se guardan en un fichero temporal
+                cp.setSpill(true);
+                // Sin limite, un grafo con demasiadas cliques agotaria el heap
+                // aunque se guarden en disco
+                cp.setMaxCliques(Runtime.getRuntime().maxMemory() / BYTES_POR_CLIQUE);
+                communityAlgorithm = cp;
                 break;
         }
         if(communityAlgorithm == null)
@@ -269,6 +302,11 @@ public class CtrAlgoritmo
         double t1 = System.currentTimeMillis();
         communityAlgorithm.calc(copy);
         double t2 = System.currentTimeMillis();
+        if(communityAlgorithm instanceof GirvanNewman)
+        {
+            GirvanNewman gn = (GirvanNewman) communityAlgorithm;
+            System.out.println("System: CtrAlgoritmo: ejecutar: Girvan-Newman detenido en p = " + gn.getStopLevel() + ", mejor modularidad en p = " + gn.getBestLevel());
+        }
         return new CtoComunidad(communityAlgorithm.obtain(), orig, this.algorithm, this.filters, this.selections, innerp, (t2 - t1));
     }
 }
\ No newline at end of file
@@ -10,7 +10,6 @@ import domain.grafos.Pagina;
 import domain.grafos.Arch;
 import java.awt.Color;
 import java.util.ArrayList;
-import java.util.Map.Entry;
 import optional.Visual;
 import shared.Graph;
 
@@ -64,10 +63,10 @@ public class CtrDominio
         nodes.addAll(this.g.getCategories());
         nodes.addAll(this.g.getPages());
         ArrayList<ArrayList<Integer>> edges = new ArrayList();
-        for(Entry<Integer, ArrayList<Arch>> entry : this.g.getCsubCArch().entrySet())
+        for(Integer i : this.g.getCategories())
         {
             ArrayList<Integer> arcs = new ArrayList();
-            for(Arch arc : entry.getValue())
+            for(Arch arc : this.g.getCsubCArch(i))
             {
                 arcs.add(arc.getDestiny());
             }
@@ -184,6 +183,17 @@ public class CtrDominio
         return this.g.getCategorySize() == 0 && this.g.getPageSize() == 0 && this.g.getNumberEdges() == 0;
     }
 
+    /**
+     * Obtiene el numero de enlaces del grafo de entrada sin construir la
+     * lista de enlaces
+     *
+     * @return numero de enlaces
+     */
+    public int getNumEnlaces()
+    {
+        return this.g.getNumberEdges();
+    }
+
     /**
      * Guarda el conjunto de comunidades en el controlador de dominio
      *
@@ -234,7 +244,7 @@ public class CtrDominio
      */
     public ArrayList<String> verEnlacesGeneral()
     {
-        ArrayList<String> response = new ArrayList<>();
+        ArrayList<String> response = new ArrayList<>(this.g.getNumberEdges());
         for(Integer i : this.g.getCategories())
         {
             for(Arch arc : this.g.getCsupCArch(i))
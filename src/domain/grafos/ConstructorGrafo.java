@@ -0,0 +1,347 @@
+package domain.grafos;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Carga en paralelo un grafo de entrada a partir de las lineas de un fichero,
+ * con el mismo resultado que llamar a setData linea a linea.
+ *
+ * Primero se reparten las lineas en bloques y cada bloque, en paralelo, separa
+ * sus lineas y da a cada nombre un identificador local en orden de aparicion.
+ * Despues se dan de alta en el grafo los nombres de cada bloque, bloque a
+ * bloque, de modo que los identificadores globales salen en el mismo orden que
+ * en la carga secuencial; solo se recorre una vez cada nombre distinto de cada
+ * bloque. Por ultimo los arcos se traducen a identificadores globales y cada
+ * tabla los reparte por origen en paralelo.
+ *
+ * Si alguna linea no es un arco bien formado (tipos de nodo que no encajan con
+ * el tipo de arco, o menos de cinco campos) no se modifica el grafo y la carga
+ * debe hacerse linea a linea, que tiene su propio tratamiento para esos casos
+ *
+ * @author Cluster 7 sub 3
+ */
+class ConstructorGrafo
+{
+    /**
+     * Numero de lineas a partir del cual compensa cargar en paralelo
+     */
+    public static final int UMBRAL_LINEAS = 1 << 15;
+    private static final int LINEAS_BLOQUE = 1 << 13;
+    private static final Arch.typeArch[] TIPOS = Arch.typeArch.values();
+    private final List<String> lineas;
+    private final Bloque[] bloques;
+
+    /**
+     * Parte de un rango de elementos que se procesa en una tarea
+     */
+    abstract static class Tramo
+    {
+        /**
+         * Procesa los elementos de desde a hasta - 1
+         *
+         * @param desde primer elemento
+         * @param hasta uno mas que el ultimo elemento
+         * @return valor a sumar al resultado
+         */
+        public abstract long procesar(int desde, int hasta);
+    }
+
+    /**
+     * Lineas de un bloque, con los nombres que aparecen en ellas y los arcos
+     * como identificadores locales del bloque
+     */
+    private static class Bloque
+    {
+        private final int desde;
+        private final int hasta;
+        private final ArrayList<String> categorias = new ArrayList<>();
+        private final ArrayList<String> paginas = new ArrayList<>();
+        private final byte[] tipos;
+        private final int[] origenes;
+        private final int[] destinos;
+        private final int[] porTipo = new int[TIPOS.length];
+        private int[] idCategorias;
+        private int[] idPaginas;
+
+        public Bloque(int desde, int hasta)
+        {
+            this.desde = desde;
+            this.hasta = hasta;
+            this.tipos = new byte[hasta - desde];
+            this.origenes = new int[hasta - desde];
+            this.destinos = new int[hasta - desde];
+        }
+    }
+
+    /**
+     * Prepara la carga de unas lineas
+     *
+     * @param lineas lineas con el formato de saveToFile
+     */
+    public ConstructorGrafo(List<String> lineas)
+    {
+        this.lineas = lineas;
+        int n = (lineas.size() + LINEAS_BLOQUE - 1) / LINEAS_BLOQUE;
+        this.bloques = new Bloque[n];
+        for(int i = 0; i < n; ++i)
+        {
+            this.bloques[i] = new Bloque(i * LINEAS_BLOQUE, Math.min(lineas.size(), (i + 1) * LINEAS_BLOQUE));
+        }
+    }
+
+    /**
+     * Añade al grafo todas las lineas
+     *
+     * @param grafo grafo de entrada, ya preparado para modificarse
+     * @return false si hay lineas que no son arcos bien formados, y entonces
+     * el grafo no se ha modificado
+     */
+    public boolean cargar(GrafoEntrada grafo)
+    {
+        ForkJoinPool pool = new ForkJoinPool();
+        try
+        {
+            long correctos = enParalelo(pool, this.bloques.length, 1, new Tramo()
+            {
+                @Override
+                public long procesar(int desde, int hasta)
+                {
+                    long suma = 0;
+                    for(int i = desde; i < hasta; ++i)
+                    {
+                        if(leer(bloques[i]))
+                        {
+                            ++suma;
+                        }
+                    }
+                    return suma;
+                }
+            });
+            if(correctos != this.bloques.length)
+            {
+                return false;
+            }
+            this.internar(grafo);
+            int[][] origenes = new int[TIPOS.length][];
+            int[][] destinos = new int[TIPOS.length][];
+            this.traducir(pool, origenes, destinos);
+            for(int t = 0; t < TIPOS.length; ++t)
+            {
+                grafo.anadirArcos(TIPOS[t], origenes[t], destinos[t], pool);
+            }
+            return true;
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Separa las lineas de un bloque y da identificadores locales a sus
+     * nombres en orden de aparicion
+     *
+     * @param bloque bloque a leer
+     * @return false si alguna linea no es un arco bien formado
+     */
+    private boolean leer(Bloque bloque)
+    {
+        HashMap<String, Integer> categorias = new HashMap<>();
+        HashMap<String, Integer> paginas = new HashMap<>();
+        for(int i = bloque.desde; i < bloque.hasta; ++i)
+        {
+            String data[] = this.lineas.get(i).split("\\s+");
+            if(data.length < 5)
+            {
+                return false;
+            }
+            boolean catA = data[1].equals("cat");
+            boolean catB = data[4].equals("cat");
+            Arch.typeArch tipo;
+            switch(data[2])
+            {
+                case "CsubC":
+                    tipo = Arch.typeArch.CsubC;
+                    break;
+                case "CsupC":
+                    tipo = Arch.typeArch.CsupC;
+                    break;
+                case "CP":
+                    tipo = Arch.typeArch.CP;
+                    break;
+                case "PC":
+                    tipo = Arch.typeArch.PC;
+                    break;
+                default:
+                    return false;
+            }
+            boolean origenCat = tipo != Arch.typeArch.PC;
+            boolean destinoCat = tipo != Arch.typeArch.CP;
+            if(catA != origenCat || catB != destinoCat)
+            {
+                return false;
+            }
+            int j = i - bloque.desde;
+            bloque.tipos[j] = (byte) tipo.ordinal();
+            ++bloque.porTipo[tipo.ordinal()];
+            bloque.origenes[j] = catA ? local(categorias, bloque.categorias, data[0]) : local(paginas, bloque.paginas, data[0]);
+            bloque.destinos[j] = catB ? local(categorias, bloque.categorias, data[3]) : local(paginas, bloque.paginas, data[3]);
+        }
+        return true;
+    }
+
+    /**
+     * Obtiene el identificador local de un nombre, dandolo de alta si aun no
+     * tiene
+     *
+     * @param ids identificadores locales por nombre
+     * @param nombres nombres en orden de aparicion
+     * @param nombre nombre a buscar
+     * @return identificador local
+     */
+    private static int local(HashMap<String, Integer> ids, ArrayList<String> nombres, String nombre)
+    {
+        Integer id = ids.get(nombre);
+        if(id == null)
+        {
+            id = nombres.size();
+            ids.put(nombre, id);
+            nombres.add(nombre);
+        }
+        return id;
+    }
+
+    /**
+     * Da de alta en el grafo los nombres de todos los bloques, en el orden de
+     * los bloques, y guarda su identificador global
+     *
+     * @param grafo grafo de entrada
+     */
+    private void internar(GrafoEntrada grafo)
+    {
+        for(Bloque bloque : this.bloques)
+        {
+            bloque.idCategorias = new int[bloque.categorias.size()];
+            for(int i = 0; i < bloque.idCategorias.length; ++i)
+            {
+                bloque.idCategorias[i] = grafo.internarCategoria(bloque.categorias.get(i));
+            }
+            bloque.idPaginas = new int[bloque.paginas.size()];
+            for(int i = 0; i < bloque.idPaginas.length; ++i)
+            {
+                bloque.idPaginas[i] = grafo.internarPagina(bloque.paginas.get(i));
+            }
+        }
+    }
+
+    /**
+     * Junta los arcos de todos los bloques por tipo, con identificadores
+     * globales y en el orden de las lineas
+     *
+     * @param pool tareas en paralelo
+     * @param origenes origenes de cada tipo de arco, se rellena aqui
+     * @param destinos destinos de cada tipo de arco, se rellena aqui
+     */
+    private void traducir(ForkJoinPool pool, final int[][] origenes, final int[][] destinos)
+    {
+        final int[][] posiciones = new int[this.bloques.length][TIPOS.length];
+        for(int t = 0; t < TIPOS.length; ++t)
+        {
+            int total = 0;
+            for(int i = 0; i < this.bloques.length; ++i)
+            {
+                posiciones[i][t] = total;
+                total += this.bloques[i].porTipo[t];
+            }
+            origenes[t] = new int[total];
+            destinos[t] = new int[total];
+        }
+        enParalelo(pool, this.bloques.length, 1, new Tramo()
+        {
+            @Override
+            public long procesar(int desde, int hasta)
+            {
+                for(int i = desde; i < hasta; ++i)
+                {
+                    Bloque bloque = bloques[i];
+                    int[] pos = posiciones[i];
+                    for(int j = 0; j < bloque.tipos.length; ++j)
+                    {
+                        int t = bloque.tipos[j];
+                        int[] mapaOrigen = t == Arch.typeArch.PC.ordinal() ? bloque.idPaginas : bloque.idCategorias;
+                        int[] mapaDestino = t == Arch.typeArch.CP.ordinal() ? bloque.idPaginas : bloque.idCategorias;
+                        origenes[t][pos[t]] = mapaOrigen[bloque.origenes[j]];
+                        destinos[t][pos[t]] = mapaDestino[bloque.destinos[j]];
+                        ++pos[t];
+                    }
+                }
+                return 0;
+            }
+        });
+    }
+
+    /**
+     * Reparte un rango de elementos entre varias tareas y espera a que acaben.
+     * Sin pool, o con pocos elementos, se procesa todo en el hilo actual
+     *
+     * @param pool tareas en paralelo, puede ser null
+     * @param n numero de elementos, de 0 a n - 1
+     * @param minimo minimo de elementos que compensa dar a una tarea
+     * @param tramo trabajo de cada parte del rango
+     * @return suma de los resultados de todas las partes
+     */
+    static long enParalelo(ForkJoinPool pool, int n, int minimo, final Tramo tramo)
+    {
+        int partes = pool == null ? 1 : Math.min(pool.getParallelism() * 4, n / minimo);
+        if(partes <= 1)
+        {
+            return n > 0 ? tramo.procesar(0, n) : 0;
+        }
+        ArrayList<Callable<Long>> tareas = new ArrayList<>(partes);
+        for(int p = 0; p < partes; ++p)
+        {
+            final int desde = (int) ((long) n * p / partes);
+            final int hasta = (int) ((long) n * (p + 1) / partes);
+            tareas.add(new Callable<Long>()
+            {
+                @Override
+                public Long call()
+                {
+                    return tramo.procesar(desde, hasta);
+                }
+            });
+        }
+        long suma = 0;
+        try
+        {
+            for(Future<Long> resultado : pool.invokeAll(tareas))
+            {
+                suma += resultado.get();
+            }
+        }
+        catch(InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+        catch(ExecutionException ex)
+        {
+            if(ex.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) ex.getCause();
+            }
+            if(ex.getCause() instanceof Error)
+            {
+                throw (Error) ex.getCause();
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+        return suma;
+    }
+}
@@ -0,0 +1,456 @@
+package domain.grafos;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Diccionario de nombres de nodo a identificadores. Los caracteres de todos los
+ * nombres se guardan seguidos en un unico vector y una tabla hash abierta
+ * guarda los identificadores, de modo que buscar un nombre no crea ningun
+ * objeto: se compara el String directamente con los caracteres guardados.
+ * Tambien guarda el nodo de cada identificador.
+ *
+ * Varios grafos pueden compartir un mismo diccionario despues de clonarse; el
+ * primero que lo modifica se queda una copia propia
+ *
+ * @param <T> tipo de nodo
+
+ * @author Cluster 7 sub 3
+ */
+class DiccionarioNombres<T extends Node>
+{
+    private static final int LIBRE = -1;
+    private static final int BORRADO = -2;
+    /**
+     * Caracteres de todos los nombres, uno detras de otro
+     */
+    private char[] texto;
+    private int usado;
+    /**
+     * Caracteres de nombres eliminados que aun ocupan el vector
+     */
+    private int desperdicio;
+    /**
+     * Posicion y longitud del nombre de cada identificador; inicio -1 si el
+     * identificador no tiene nombre
+     */
+    private int[] inicio;
+    private int[] longitud;
+    private Object[] nodos;
+    /**
+     * Tabla hash con los identificadores, LIBRE o BORRADO
+     */
+    private int[] tabla;
+    private int ocupadas;
+    private int numNombres;
+    /**
+     * Numero de grafos que usan este diccionario
+     */
+    private int referencias;
+
+    /**
+     * Crea un diccionario vacio
+     *
+     * @param capacidad numero de nombres previsto
+     */
+    public DiccionarioNombres(int capacidad)
+    {
+        capacidad = Math.max(capacidad, 16);
+        this.texto = new char[capacidad * 16];
+        this.inicio = new int[capacidad];
+        this.longitud = new int[capacidad];
+        this.nodos = new Object[capacidad];
+        Arrays.fill(this.inicio, -1);
+        this.tabla = new int[Integer.highestOneBit(capacidad * 4)];
+        Arrays.fill(this.tabla, LIBRE);
+        this.referencias = 1;
+    }
+
+    /**
+     * Apunta que otro grafo pasa a usar este diccionario
+     */
+    public void compartir()
+    {
+        ++this.referencias;
+    }
+
+    /**
+     * Obtiene un diccionario que se puede modificar sin afectar a otros
+     * grafos: el mismo si nadie mas lo usa, o una copia si esta compartido
+     *
+     * @return diccionario propio
+     */
+    public DiccionarioNombres<T> paraEscribir()
+    {
+        if(this.referencias == 1)
+        {
+            return this;
+        }
+        --this.referencias;
+        return this.copia();
+    }
+
+    /**
+     * Obtiene el numero de nombres guardados
+     *
+     * @return numero de nombres
+     */
+    public int size()
+    {
+        return this.numNombres;
+    }
+
+    /**
+     * Obtiene el nodo de un identificador
+     *
+     * @param id identificador
+     * @return nodo o null si el identificador no esta
+     */
+    public T getNodo(int id)
+    {
+        if(id < 0 || id >= this.inicio.length || this.inicio[id] < 0)
+        {
+            return null;
+        }
+        // nodos solo guarda objetos de tipo T
+        @SuppressWarnings("unchecked")
+        T nodo = (T) this.nodos[id];
+        return nodo;
+    }
+
+    /**
+     * Indica si un identificador esta en el diccionario
+     *
+     * @param id identificador
+     * @return true si esta
+     */
+    public boolean contiene(int id)
+    {
+        return id >= 0 && id < this.inicio.length && this.inicio[id] >= 0;
+    }
+
+    /**
+     * Obtiene todos los identificadores, de menor a mayor
+     *
+     * @return lista de identificadores
+     */
+    public ArrayList<Integer> getIdentificadores()
+    {
+        ArrayList<Integer> response = new ArrayList<>(this.numNombres);
+        for(int id = 0; id < this.inicio.length; ++id)
+        {
+            if(this.inicio[id] >= 0)
+            {
+                response.add(id);
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Busca el identificador de un nombre. Un nombre null se trata como la
+     * cadena vacia
+     *
+     * @param nombre nombre a buscar
+     * @return identificador o -1 si no esta
+     */
+    public int buscar(String nombre)
+    {
+        if(nombre == null)
+        {
+            nombre = "";
+        }
+        int mascara = this.tabla.length - 1;
+        for(int i = this.posicion(nombre.hashCode()); this.tabla[i] != LIBRE; i = (i + 1) & mascara)
+        {
+            int id = this.tabla[i];
+            if(id >= 0 && this.iguales(id, nombre))
+            {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Asocia un nodo a un identificador por su nombre. Si el nombre ya tenia
+     * otro identificador o el identificador otro nodo, la asociacion anterior
+     * se pierde
+     *
+     * @param nodo nodo a guardar
+     * @param id identificador del nodo, no negativo
+     */
+    public void poner(T nodo, int id)
+    {
+        String nombre = nodo.getNombre();
+        if(nombre == null)
+        {
+            nombre = "";
+        }
+        int anterior = this.buscar(nombre);
+        if(anterior == id)
+        {
+            this.nodos[id] = nodo;
+            return;
+        }
+        if(anterior >= 0)
+        {
+            this.quitar(anterior);
+        }
+        this.quitar(id);
+        if(id >= this.inicio.length)
+        {
+            int capacidad = Math.max(id + 1, this.inicio.length * 2);
+            int n = this.inicio.length;
+            this.inicio = Arrays.copyOf(this.inicio, capacidad);
+            this.longitud = Arrays.copyOf(this.longitud, capacidad);
+            this.nodos = Arrays.copyOf(this.nodos, capacidad);
+            Arrays.fill(this.inicio, n, capacidad, -1);
+        }
+        if(2 * (this.ocupadas + 1) > this.tabla.length)
+        {
+            this.rehacer(Integer.highestOneBit(Math.max(this.numNombres + 1, 8) * 4));
+        }
+        int tam = nombre.length();
+        if(this.usado + tam > this.texto.length)
+        {
+            this.texto = Arrays.copyOf(this.texto, Math.max(this.usado + tam, this.texto.length * 2));
+        }
+        nombre.getChars(0, tam, this.texto, this.usado);
+        this.inicio[id] = this.usado;
+        this.longitud[id] = tam;
+        this.nodos[id] = nodo;
+        this.usado += tam;
+        this.insertar(id, nombre.hashCode());
+        ++this.numNombres;
+    }
+
+    /**
+     * Elimina el nombre de un identificador
+     *
+     * @param id identificador del nodo
+     * @return true si tenia nombre
+     */
+    public boolean quitar(int id)
+    {
+        if(id < 0 || id >= this.inicio.length || this.inicio[id] < 0)
+        {
+            return false;
+        }
+        int mascara = this.tabla.length - 1;
+        int i = this.posicion(this.hash(id));
+        while(this.tabla[i] != id)
+        {
+            i = (i + 1) & mascara;
+        }
+        this.tabla[i] = BORRADO;
+        this.desperdicio += this.longitud[id];
+        this.inicio[id] = -1;
+        this.longitud[id] = 0;
+        this.nodos[id] = null;
+        --this.numNombres;
+        if(this.desperdicio > 1024 && 2 * this.desperdicio > this.usado)
+        {
+            this.compactar();
+        }
+        return true;
+    }
+
+    /**
+     * Crea una copia independiente del diccionario
+     *
+     * @return diccionario nuevo con los mismos nombres
+     */
+    private DiccionarioNombres<T> copia()
+    {
+        DiccionarioNombres<T> obj = new DiccionarioNombres<>(0);
+        obj.texto = Arrays.copyOf(this.texto, this.usado);
+        obj.usado = this.usado;
+        obj.desperdicio = this.desperdicio;
+        obj.inicio = this.inicio.clone();
+        obj.longitud = this.longitud.clone();
+        obj.nodos = this.nodos.clone();
+        obj.tabla = this.tabla.clone();
+        obj.ocupadas = this.ocupadas;
+        obj.numNombres = this.numNombres;
+        return obj;
+    }
+
+    /**
+     * Compara el nombre guardado de un identificador con un String
+     *
+     * @param id identificador con nombre
+     * @param nombre nombre a comparar
+     * @return true si son iguales
+     */
+    private boolean iguales(int id, String nombre)
+    {
+        int tam = this.longitud[id];
+        if(tam != nombre.length())
+        {
+            return false;
+        }
+        int base = this.inicio[id];
+        for(int i = 0; i < tam; ++i)
+        {
+            if(this.texto[base + i] != nombre.charAt(i))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Calcula el hash del nombre guardado de un identificador, igual que
+     * String.hashCode para que las busquedas por String coincidan
+     *
+     * @param id identificador con nombre
+     * @return hash del nombre
+     */
+    private int hash(int id)
+    {
+        int h = 0;
+        int fin = this.inicio[id] + this.longitud[id];
+        for(int i = this.inicio[id]; i < fin; ++i)
+        {
+            h = 31 * h + this.texto[i];
+        }
+        return h;
+    }
+
+    /**
+     * Posicion inicial de un hash en la tabla
+     *
+     * @param h hash del nombre
+     * @return posicion
+     */
+    private int posicion(int h)
+    {
+        h ^= h >>> 16;
+        return (h * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(this.tabla.length));
+    }
+
+    /**
+     * Coloca un identificador en la primera posicion libre de su secuencia
+     *
+     * @param id identificador
+     * @param h hash de su nombre
+     */
+    private void insertar(int id, int h)
+    {
+        int mascara = this.tabla.length - 1;
+        int i = this.posicion(h);
+        while(this.tabla[i] >= 0)
+        {
+            i = (i + 1) & mascara;
+        }
+        if(this.tabla[i] == LIBRE)
+        {
+            ++this.ocupadas;
+        }
+        this.tabla[i] = id;
+    }
+
+    /**
+     * Reconstruye la tabla hash con otro tamaño, descartando los borrados
+     *
+     * @param tam nuevo tamaño, potencia de 2
+     */
+    private void rehacer(int tam)
+    {
+        this.tabla = new int[tam];
+        Arrays.fill(this.tabla, LIBRE);
+        this.ocupadas = 0;
+        for(int id = 0; id < this.inicio.length; ++id)
+        {
+            if(this.inicio[id] >= 0)
+            {
+                this.insertar(id, this.hash(id));
+            }
+        }
+    }
+
+    /**
+     * Junta los nombres vivos al principio del vector de caracteres
+     */
+    private void compactar()
+    {
+        char[] nuevo = new char[Math.max(this.usado - this.desperdicio, 16)];
+        int pos = 0;
+        for(int id = 0; id < this.inicio.length; ++id)
+        {
+            if(this.inicio[id] >= 0)
+            {
+                System.arraycopy(this.texto, this.inicio[id], nuevo, pos, this.longitud[id]);
+                this.inicio[id] = pos;
+                pos += this.longitud[id];
+            }
+        }
+        this.texto = nuevo;
+        this.usado = pos;
+        this.desperdicio = 0;
+    }
+
+    /**
+     * Genera un Hash a partir de los nombres y sus identificadores
+     *
+     * @return
+     */
+    @Override
+    public int hashCode()
+    {
+        int hash = 7;
+        for(int id = 0; id < this.inicio.length; ++id)
+        {
+            if(this.inicio[id] >= 0)
+            {
+                hash += id ^ this.hash(id);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Dos diccionarios son iguales si asocian los mismos nombres a los mismos
+     * identificadores
+     *
+     * @param obj diccionario con el que comparar
+     * @return
+     */
+    @Override
+    public boolean equals(Object obj)
+    {
+        if(obj == null)
+        {
+            return false;
+        }
+        if(getClass() != obj.getClass())
+        {
+            return false;
+        }
+        final DiccionarioNombres<?> other = (DiccionarioNombres<?>) obj;
+        if(this.numNombres != other.numNombres)
+        {
+            return false;
+        }
+        for(int id = 0; id < this.inicio.length; ++id)
+        {
+            if(this.inicio[id] >= 0)
+            {
+                if(id >= other.inicio.length || other.inicio[id] < 0 || this.longitud[id] != other.longitud[id])
+                {
+                    return false;
+                }
+                for(int i = 0; i < this.longitud[id]; ++i)
+                {
+                    if(this.texto[this.inicio[id] + i] != other.texto[other.inicio[id] + i])
+                    {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -1,10 +1,11 @@
 package domain.grafos;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map.Entry;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Grafo de entrada se encarga de almacenar de forma eficiente todos los datos
@@ -18,16 +19,23 @@ public class GrafoEntrada implements Cloneable
 {
     private Integer categoryId;
     private Integer pageId;
-    private int edgeSize;
     private int hashCapacity;
-    private HashMap<Integer, Categoria> indexCategoria;
-    private HashMap<Integer, Pagina> indexPagina;
-    private HashMap<Categoria, Integer> categoriaIndex;
-    private HashMap<Pagina, Integer> paginaIndex;
-    private HashMap<Integer, ArrayList<Arch>> csupcEdges;
-    private HashMap<Integer, ArrayList<Arch>> csubcEdges;
-    private HashMap<Integer, ArrayList<Arch>> cpEdges;
-    private HashMap<Integer, ArrayList<Arch>> pcEdges;
+    private DiccionarioNombres<Categoria> categoriaIndex;
+    private DiccionarioNombres<Pagina> paginaIndex;
+    private TablaArcos csupcEdges;
+    private TablaArcos csubcEdges;
+    private TablaArcos cpEdges;
+    private TablaArcos pcEdges;
+    /**
+     * Indice de ascendientes y descendientes de las categorias, null hasta
+     * que se consulta o despues de modificar la jerarquia
+     */
+    private IndiceJerarquia jerarquia;
+    /**
+     * A partir de que proporcion entre los grados se usa la busqueda
+     * exponencial en lugar del recorrido en paralelo
+     */
+    private static final int PROPORCION_GALOPE = 16;
 
     /**
      * Constructor por defecto
@@ -36,16 +44,13 @@ public class GrafoEntrada implements Cloneable
     {
         this.categoryId = 0;
         this.pageId = 0;
-        this.edgeSize = 0;
         this.hashCapacity = 5814;
-        this.indexCategoria = new HashMap(this.hashCapacity);
-        this.indexPagina = new HashMap(this.hashCapacity * 3);
-        this.categoriaIndex = new HashMap(this.hashCapacity);
-        this.paginaIndex = new HashMap(this.hashCapacity * 3);
-        this.csubcEdges = new HashMap(this.hashCapacity);
-        this.csupcEdges = new HashMap(this.hashCapacity);
-        this.cpEdges = new HashMap(this.hashCapacity);
-        this.pcEdges = new HashMap(this.hashCapacity);
+        this.categoriaIndex = new DiccionarioNombres<>(this.hashCapacity);
+        this.paginaIndex = new DiccionarioNombres<>(this.hashCapacity * 3);
+        this.csubcEdges = new TablaArcos(Arch.typeArch.CsubC, this.hashCapacity);
+        this.csupcEdges = new TablaArcos(Arch.typeArch.CsupC, this.hashCapacity);
+        this.cpEdges = new TablaArcos(Arch.typeArch.CP, this.hashCapacity);
+        this.pcEdges = new TablaArcos(Arch.typeArch.PC, this.hashCapacity * 3);
     }
 
     /**
@@ -59,26 +64,80 @@ public class GrafoEntrada implements Cloneable
     {
         this.categoryId = 0;
         this.pageId = 0;
-        this.edgeSize = 0;
         this.hashCapacity = hashCapacity;
-        this.indexCategoria = new HashMap(this.hashCapacity);
-        this.indexPagina = new HashMap(this.hashCapacity * 3);
-        this.categoriaIndex = new HashMap(this.hashCapacity);
-        this.paginaIndex = new HashMap(this.hashCapacity * 3);
-        this.csubcEdges = new HashMap(this.hashCapacity);
-        this.csupcEdges = new HashMap(this.hashCapacity);
-        this.cpEdges = new HashMap(this.hashCapacity);
-        this.pcEdges = new HashMap(this.hashCapacity);
+        this.categoriaIndex = new DiccionarioNombres<>(this.hashCapacity);
+        this.paginaIndex = new DiccionarioNombres<>(this.hashCapacity * 3);
+        this.csubcEdges = new TablaArcos(Arch.typeArch.CsubC, this.hashCapacity);
+        this.csupcEdges = new TablaArcos(Arch.typeArch.CsupC, this.hashCapacity);
+        this.cpEdges = new TablaArcos(Arch.typeArch.CP, this.hashCapacity);
+        this.pcEdges = new TablaArcos(Arch.typeArch.PC, this.hashCapacity * 3);
     }
 
     /**
-     * Obtiene el numero total de aristas presentes en el grafo
+     * Obtiene el numero total de aristas presentes en el grafo. Cada tabla de
+     * arcos lleva la cuenta exacta, asi que no hace falta recorrerlas
      *
      * @return numero de aristas
      */
     public int getNumberEdges()
     {
-        return this.edgeSize;
+        return this.csubcEdges.getNumArcos() + this.csupcEdges.getNumArcos() + this.cpEdges.getNumArcos() + this.pcEdges.getNumArcos();
+    }
+
+    /**
+     * Obtiene el numero de aristas de un tipo concreto
+     *
+     * @param type tipo de arco
+     * @return numero de aristas de ese tipo
+     */
+    public int getNumberEdges(Arch.typeArch type)
+    {
+        return this.getTabla(type).getNumArcos();
+    }
+
+    /**
+     * Obtiene el numero de arcos de un tipo que salen de un nodo
+     *
+     * @param node nodo origen
+     * @param type tipo de arco
+     * @return grado de salida
+     */
+    public int getOutAdyacent(Integer node, Arch.typeArch type)
+    {
+        return this.getTabla(type).getGrado(node);
+    }
+
+    /**
+     * Obtiene el numero de arcos de un tipo que llegan a un nodo
+     *
+     * @param node nodo destino
+     * @param type tipo de arco
+     * @return grado de entrada
+     */
+    public int getInAdyacent(Integer node, Arch.typeArch type)
+    {
+        return this.getTabla(type).getGradoEntrada(node);
+    }
+
+    /**
+     * Obtiene la tabla que guarda los arcos de un tipo
+     *
+     * @param type tipo de arco
+     * @return tabla de arcos
+     */
+    private TablaArcos getTabla(Arch.typeArch type)
+    {
+        switch(type)
+        {
+            case CsubC:
+                return this.csubcEdges;
+            case CsupC:
+                return this.csupcEdges;
+            case CP:
+                return this.cpEdges;
+            default:
+                return this.pcEdges;
+        }
     }
 
     /**
@@ -88,7 +147,7 @@ public class GrafoEntrada implements Cloneable
      */
     public int getCategorySize()
     {
-        return this.indexCategoria.size();
+        return this.categoriaIndex.size();
     }
 
     /**
@@ -98,35 +157,42 @@ public class GrafoEntrada implements Cloneable
      */
     public int getPageSize()
     {
-        return this.indexPagina.size();
+        return this.paginaIndex.size();
     }
 
     /**
-     * Cambia el nombre de una pagina
+     * Cambia el nombre de una pagina. Se guarda una pagina nueva en lugar de
+     * modificar la anterior, que puede estar compartida con otros grafos
      *
      * @param page numero de la pagina a cambiar
      * @param change nombre nuevo
      */
     public void changePage(Integer page, String change)
     {
-        Pagina pag = this.indexPagina.get(page);
-        pag.setNombre(change);
-        this.indexPagina.put(page, pag);
-        this.paginaIndex.put(pag, page);
+        if(!this.paginaIndex.contiene(page))
+        {
+            return;
+        }
+        this.separar();
+        this.paginaIndex.poner(new Pagina(change), page);
     }
 
     /**
-     * Cambia el nombre de una categoria
+     * Cambia el nombre de una categoria. Se guarda una categoria nueva en
+     * lugar de modificar la anterior, que puede estar compartida con otros
+     * grafos
      *
      * @param category numero de la categoria a cambiar
      * @param change nombre nuevo
      */
     public void changeCategory(Integer category, String change)
     {
-        Categoria cat = this.indexCategoria.get(category);
-        cat.setNombre(change);
-        this.indexCategoria.put(category, cat);
-        this.categoriaIndex.put(cat, category);
+        if(!this.categoriaIndex.contiene(category))
+        {
+            return;
+        }
+        this.separar();
+        this.categoriaIndex.poner(new Categoria(change), category);
     }
 
     /**
@@ -136,7 +202,7 @@ public class GrafoEntrada implements Cloneable
      */
     public ArrayList<Integer> getCategories()
     {
-        return new ArrayList(this.indexCategoria.keySet());
+        return this.categoriaIndex.getIdentificadores();
     }
 
     /**
@@ -146,86 +212,70 @@ public class GrafoEntrada implements Cloneable
      */
     public ArrayList<Integer> getPages()
     {
-        return new ArrayList(this.indexPagina.keySet());
+        return this.paginaIndex.getIdentificadores();
     }
 
     /**
-     * Obtiene las categorias que son adyacentes a una categoria concreta
+     * Obtiene las categorias que son adyacentes a una categoria concreta. Los
+     * destinos de cada tipo de arco ya son unicos, asi que solo hay que
+     * descartar los CsupC que tambien son CsubC, y eso se consulta en la tabla
+     * sin recorrer la respuesta
      *
      * @param node categoria sobre la que buscar adyacentes
      * @return lista de adyacentes que son categoria
      */
     public ArrayList<Integer> getCategoriesAdyacentCategories(Integer node)
     {
-        ArrayList<Integer> response = new ArrayList();
-        int temp;
-        if(this.csubcEdges.containsKey(node))
+        int subc = this.csubcEdges.getGrado(node);
+        int supc = this.csupcEdges.getGrado(node);
+        ArrayList<Integer> response = new ArrayList<>(subc + supc);
+        for(int i = 0; i < subc; ++i)
         {
-            for(Arch arc : this.csubcEdges.get(node))
-            {
-                temp = arc.getDestiny();
-                if(!response.contains(temp))
-                {
-                    response.add((Integer) temp);
-                }
-            }
+            response.add(this.csubcEdges.getDestino(node, i));
         }
-        if(this.csupcEdges.containsKey(node))
+        for(int i = 0; i < supc; ++i)
         {
-            for(Arch arc : this.csupcEdges.get(node))
+            int temp = this.csupcEdges.getDestino(node, i);
+            if(!this.csubcEdges.contiene(node, temp))
             {
-                temp = arc.getDestiny();
-                if(!response.contains(temp))
-                {
-                    response.add((Integer) temp);
-                }
+                response.add(temp);
             }
         }
         return response;
     }
 
     /**
-     * Obtiene las categorias que son adyacentes a una pagina concreta
+     * Obtiene las categorias que son adyacentes a una pagina concreta. Un nodo no
+     * tiene dos arcos iguales, por lo que sus destinos ya son unicos
      *
      * @param node pagina sobre la que buscar adyacentes
      * @return lista de adyacentes que son categoria
      */
     public ArrayList<Integer> getPageAdyacentCategories(Integer node)
     {
-        ArrayList<Integer> response = new ArrayList();
-        if(this.pcEdges.containsKey(node))
+        int grado = this.pcEdges.getGrado(node);
+        ArrayList<Integer> response = new ArrayList<>(grado);
+        for(int i = 0; i < grado; ++i)
         {
-            for(Arch arc : this.pcEdges.get(node))
-            {
-                int temp = arc.getDestiny();
-                if(!response.contains(temp))
-                {
-                    response.add((Integer) temp);
-                }
-            }
+            response.add(this.pcEdges.getDestino(node, i));
         }
         return response;
     }
 
     /**
-     * Obtiene las paginas que son adyacentes a una categoria concreta
+     * Obtiene las paginas que son adyacentes a una categoria concreta. Un nodo no
+     * tiene dos arcos iguales, por lo que sus destinos ya son unicos
      *
      * @param node categoria sobre la que buscar adyacentes
      * @return lista de adyacentes que son pagina
      */
     public ArrayList<Integer> getCategoriesAdyacentPage(Integer node)
     {
-        ArrayList<Integer> response = new ArrayList();
-        if(this.cpEdges.containsKey(node))
+        int grado = this.cpEdges.getGrado(node);
+        ArrayList<Integer> response = new ArrayList<>(grado);
+        for(int i = 0; i < grado; ++i)
         {
-            for(Arch arc : this.cpEdges.get(node))
-            {
-                int temp = arc.getDestiny();
-                if(!response.contains(temp))
-                {
-                    response.add((Integer) temp);
-                }
-            }
+            response.add(this.cpEdges.getDestino(node, i));
         }
         return response;
     }
@@ -238,20 +288,7 @@ public class GrafoEntrada implements Cloneable
      */
     public int getCategoryNumberAdyacent(Integer node)
     {
-        int suma = 0;
-        if(this.csubcEdges.containsKey(node))
-        {
-            suma += this.csubcEdges.get(node).size();
-        }
-        if(this.csupcEdges.containsKey(node))
-        {
-            suma += this.csupcEdges.get(node).size();
-        }
-        if(this.cpEdges.containsKey(node))
-        {
-            suma += this.cpEdges.get(node).size();
-        }
-        return suma;
+        return this.csubcEdges.getGrado(node) + this.csupcEdges.getGrado(node) + this.cpEdges.getGrado(node);
     }
 
     /**
@@ -262,12 +299,7 @@ public class GrafoEntrada implements Cloneable
      */
     public int getPageNumberAdyacent(Integer node)
     {
-        int suma = 0;
-        if(this.pcEdges.containsKey(node))
-        {
-            suma += this.pcEdges.get(node).size();
-        }
-        return suma;
+        return this.pcEdges.getGrado(node);
     }
 
     /**
@@ -278,11 +310,7 @@ public class GrafoEntrada implements Cloneable
      */
     public int getCsupCAdyacent(Integer node)
     {
-        if(this.csupcEdges.containsKey(node))
-        {
-            return this.csupcEdges.get(node).size();
-        }
-        return 0;
+        return this.csupcEdges.getGrado(node);
     }
 
     /**
@@ -293,11 +321,7 @@ public class GrafoEntrada implements Cloneable
      */
     public int getCsubCAdyacent(Integer node)
     {
-        if(this.csubcEdges.containsKey(node))
-        {
-            return this.csubcEdges.get(node).size();
-        }
-        return 0;
+        return this.csubcEdges.getGrado(node);
     }
 
     /**
@@ -309,21 +333,7 @@ public class GrafoEntrada implements Cloneable
      */
     public int getCsupCCommon(Integer nodeA, Integer nodeB)
     {
-        int suma = 0;
-        if(this.csupcEdges.containsKey(nodeA) && this.csupcEdges.containsKey(nodeB))
-        {
-            for(Arch ArcNodeA : this.csupcEdges.get(nodeA))
-            {
-                for(Arch ArcNodeB : this.csupcEdges.get(nodeB))
-                {
-                    if(ArcNodeA.getDestiny() == ArcNodeB.getDestiny())
-                    {
-                        ++suma;
-                    }
-                }
-            }
-        }
-        return suma;
+        return contarComunes(this.csupcEdges.getOrdenados(nodeA), this.csupcEdges.getOrdenados(nodeB));
     }
 
     /**
@@ -335,21 +345,7 @@ public class GrafoEntrada implements Cloneable
      */
     public int getCsubCCommon(Integer nodeA, Integer nodeB)
     {
-        int suma = 0;
-        if(this.csubcEdges.containsKey(nodeA) && this.csubcEdges.containsKey(nodeB))
-        {
-            for(Arch ArcNodeA : this.csubcEdges.get(nodeA))
-            {
-                for(Arch ArcNodeB : this.csubcEdges.get(nodeB))
-                {
-                    if(ArcNodeA.getDestiny() == ArcNodeB.getDestiny())
-                    {
-                        ++suma;
-                    }
-                }
-            }
-        }
-        return suma;
+        return contarComunes(this.csubcEdges.getOrdenados(nodeA), this.csubcEdges.getOrdenados(nodeB));
     }
 
     /**
@@ -361,21 +357,7 @@ public class GrafoEntrada implements Cloneable
      */
     public int getPCCommon(Integer nodeA, Integer nodeB)
     {
-        int suma = 0;
-        if(this.pcEdges.containsKey(nodeA) && this.pcEdges.containsKey(nodeB))
-        {
-            for(Arch ArcNodeA : this.pcEdges.get(nodeA))
-            {
-                for(Arch ArcNodeB : this.pcEdges.get(nodeB))
-                {
-                    if(ArcNodeA.getDestiny() == ArcNodeB.getDestiny())
-                    {
-                        ++suma;
-                    }
-                }
-            }
-        }
-        return suma;
+        return contarComunes(this.pcEdges.getOrdenados(nodeA), this.pcEdges.getOrdenados(nodeB));
     }
 
     /**
@@ -387,21 +369,7 @@ public class GrafoEntrada implements Cloneable
      */
     public int getCPCommon(Integer nodeA, Integer nodeB)
     {
-        int suma = 0;
-        if(this.cpEdges.containsKey(nodeA) && this.cpEdges.containsKey(nodeB))
-        {
-            for(Arch ArcNodeA : this.cpEdges.get(nodeA))
-            {
-                for(Arch ArcNodeB : this.cpEdges.get(nodeB))
-                {
-                    if(ArcNodeA.getDestiny() == ArcNodeB.getDestiny())
-                    {
-                        ++suma;
-                    }
-                }
-            }
-        }
-        return suma;
+        return contarComunes(this.cpEdges.getOrdenados(nodeA), this.cpEdges.getOrdenados(nodeB));
     }
 
     /**
@@ -433,63 +401,240 @@ public class GrafoEntrada implements Cloneable
     }
 
     /**
-     * Obtiene la lista de arcos que son CsubC de un nodo
+     * Cuenta los destinos comunes de dos nodos para un tipo de arco. Como un
+     * nodo nunca tiene dos arcos iguales, sus destinos no se repiten y basta
+     * con intersectar las dos listas ordenadas
      *
-     * @param nodeA nodo
-     * @return lista de arcos CsubC
+     * @param a destinos ordenados del primer nodo, o null
+     * @param b destinos ordenados del segundo nodo, o null
+     * @return numero de destinos comunes
      */
-    public ArrayList<Arch> getCsubCArch(Integer nodeA)
+    private static int contarComunes(int[] a, int[] b)
     {
-        if(this.csubcEdges.containsKey(nodeA))
+        if(a == null || b == null || a.length == 0 || b.length == 0)
+        {
+            return 0;
+        }
+        if(a.length > b.length)
+        {
+            int[] aux = a;
+            a = b;
+            b = aux;
+        }
+        if(b.length / a.length >= PROPORCION_GALOPE)
         {
-            return this.csubcEdges.get(nodeA);
+            return contarComunesGalope(a, b);
+        }
+        int suma = 0;
+        int i = 0, j = 0;
+        while(i < a.length && j < b.length)
+        {
+            if(a[i] < b[j])
+            {
+                ++i;
+            }
+            else if(a[i] > b[j])
+            {
+                ++j;
+            }
+            else
+            {
+                ++suma;
+                ++i;
+                ++j;
+            }
         }
-        return new ArrayList();
+        return suma;
     }
 
     /**
-     * Obtiene la lista de arcos que son CsupC de un nodo
+     * Interseccion por busqueda exponencial: para cada elemento de la lista
+     * pequeña se avanza a saltos dobles sobre la grande y se acaba con una
+     * busqueda binaria, con coste O(a log(b / a))
      *
-     * @param nodeA nodo
-     * @return lista de arcos CsupC
+     * @param a lista ordenada pequeña
+     * @param b lista ordenada grande
+     * @return numero de elementos comunes
      */
-    public ArrayList<Arch> getCsupCArch(Integer nodeA)
+    private static int contarComunesGalope(int[] a, int[] b)
     {
-        if(this.csupcEdges.containsKey(nodeA))
+        int suma = 0;
+        int inicio = 0;
+        for(int i = 0; i < a.length && inicio < b.length; ++i)
         {
-            return this.csupcEdges.get(nodeA);
+            int valor = a[i];
+            int salto = 1;
+            int fin = inicio;
+            while(fin < b.length && b[fin] < valor)
+            {
+                inicio = fin + 1;
+                fin += salto;
+                salto <<= 1;
+            }
+            int pos = Arrays.binarySearch(b, inicio, Math.min(fin + 1, b.length), valor);
+            if(pos >= 0)
+            {
+                ++suma;
+                inicio = pos + 1;
+            }
+            else
+            {
+                inicio = -pos - 1;
+            }
         }
-        return new ArrayList();
+        return suma;
     }
 
     /**
-     * Obtiene la lista de arcos que son CP de un nodo
+     * Calcula ya el indice de la jerarquia de categorias. Es opcional: si no
+     * se llama, el indice se calcula en la primera consulta que lo necesita,
+     * y se vuelve a calcular cuando se quita una categoria o cambian los arcos
+     * CsubC o CsupC. Las categorias nuevas, que aun no tienen arcos, y los
+     * cambios de paginas no lo invalidan
+     */
+    public void buildHierarchy()
+    {
+        this.getJerarquia();
+    }
+
+    /**
+     * Obtiene el indice de la jerarquia de categorias, calculandolo si hace
+     * falta
      *
-     * @param nodeA nodo
-     * @return lista de arcos CP
+     * @return indice de la jerarquia
      */
-    public ArrayList<Arch> getCPArch(Integer nodeA)
+    private IndiceJerarquia getJerarquia()
     {
-        if(this.cpEdges.containsKey(nodeA))
+        if(this.jerarquia == null)
         {
-            return this.cpEdges.get(nodeA);
+            this.jerarquia = new IndiceJerarquia(this.csubcEdges, this.csupcEdges, this.categoriaIndex, this.categoryId);
         }
-        return new ArrayList();
+        return this.jerarquia;
+    }
+
+    /**
+     * Indica si una categoria es descendiente de otra, siguiendo tanto los
+     * arcos CsubC como los CsupC en sentido contrario
+     *
+     * @param ancestor indice de la categoria superior
+     * @param node indice de la categoria a consultar
+     * @return true si node es descendiente de ancestor
+     */
+    public boolean isDescendantCategory(Integer ancestor, Integer node)
+    {
+        return this.getJerarquia().esDescendiente(ancestor, node);
+    }
+
+    /**
+     * Obtiene todas las subcategorias de una categoria, directas o no
+     *
+     * @param node indice de categoria
+     * @return lista de descendientes
+     */
+    public ArrayList<Integer> getDescendantCategories(Integer node)
+    {
+        return this.getJerarquia().getDescendientes(node);
+    }
+
+    /**
+     * Obtiene todas las supercategorias de una categoria, directas o no
+     *
+     * @param node indice de categoria
+     * @return lista de ascendientes
+     */
+    public ArrayList<Integer> getAncestorCategories(Integer node)
+    {
+        return this.getJerarquia().getAscendientes(node);
+    }
+
+    /**
+     * Obtiene el numero de subcategorias de una categoria, directas o no
+     *
+     * @param node indice de categoria
+     * @return numero de descendientes
+     */
+    public int getDescendantNumber(Integer node)
+    {
+        return this.getJerarquia().getNumDescendientes(node);
+    }
+
+    /**
+     * Obtiene el numero de supercategorias de una categoria, directas o no
+     *
+     * @param node indice de categoria
+     * @return numero de ascendientes
+     */
+    public int getAncestorNumber(Integer node)
+    {
+        return this.getJerarquia().getNumAscendientes(node);
+    }
+
+    /**
+     * Obtiene la suma de descendientes que son comunes a 2 categorias
+     *
+     * @param nodeA indice de categoria 1
+     * @param nodeB indice de categoria 2
+     * @return suma de descendientes
+     */
+    public int getDescendantsCommon(Integer nodeA, Integer nodeB)
+    {
+        return this.getJerarquia().getDescendientesComunes(nodeA, nodeB);
+    }
+
+    /**
+     * Obtiene la suma de ascendientes que son comunes a 2 categorias
+     *
+     * @param nodeA indice de categoria 1
+     * @param nodeB indice de categoria 2
+     * @return suma de ascendientes
+     */
+    public int getAncestorsCommon(Integer nodeA, Integer nodeB)
+    {
+        return this.getJerarquia().getAscendientesComunes(nodeA, nodeB);
+    }
+
+    /**
+     * Obtiene la lista de arcos que son CsubC de un nodo
+     *
+     * @param nodeA nodo
+     * @return lista de solo lectura con los arcos CsubC
+     */
+    public List<Arch> getCsubCArch(Integer nodeA)
+    {
+        return this.csubcEdges.getVista(nodeA);
+    }
+
+    /**
+     * Obtiene la lista de arcos que son CsupC de un nodo
+     *
+     * @param nodeA nodo
+     * @return lista de solo lectura con los arcos CsupC
+     */
+    public List<Arch> getCsupCArch(Integer nodeA)
+    {
+        return this.csupcEdges.getVista(nodeA);
+    }
+
+    /**
+     * Obtiene la lista de arcos que son CP de un nodo
+     *
+     * @param nodeA nodo
+     * @return lista de solo lectura con los arcos CP
+     */
+    public List<Arch> getCPArch(Integer nodeA)
+    {
+        return this.cpEdges.getVista(nodeA);
     }
 
     /**
      * Obtiene la lista de arcos que son PC de un nodo
      *
      * @param nodeA nodo
-     * @return lista de arcos PC
+     * @return lista de solo lectura con los arcos PC
      */
-    public ArrayList<Arch> getPCArch(Integer nodeA)
+    public List<Arch> getPCArch(Integer nodeA)
     {
-        if(this.pcEdges.containsKey(nodeA))
-        {
-            return this.pcEdges.get(nodeA);
-        }
-        return new ArrayList();
+        return this.pcEdges.getVista(nodeA);
     }
 
     /**
@@ -527,7 +672,8 @@ public class GrafoEntrada implements Cloneable
      */
     public void setCsubCArch(HashMap<Integer, ArrayList<Arch>> csubcEdges)
     {
-        this.csubcEdges = csubcEdges;
+        this.csubcEdges = TablaArcos.fromMap(Arch.typeArch.CsubC, csubcEdges);
+        this.jerarquia = null;
     }
 
     /**
@@ -537,7 +683,8 @@ public class GrafoEntrada implements Cloneable
      */
     public void setCsupCArch(HashMap<Integer, ArrayList<Arch>> csupcEdges)
     {
-        this.csupcEdges = csupcEdges;
+        this.csupcEdges = TablaArcos.fromMap(Arch.typeArch.CsupC, csupcEdges);
+        this.jerarquia = null;
     }
 
     /**
@@ -547,7 +694,7 @@ public class GrafoEntrada implements Cloneable
      */
     public void setCPArch(HashMap<Integer, ArrayList<Arch>> cpEdges)
     {
-        this.cpEdges = cpEdges;
+        this.cpEdges = TablaArcos.fromMap(Arch.typeArch.CP, cpEdges);
     }
 
     /**
@@ -557,77 +704,77 @@ public class GrafoEntrada implements Cloneable
      */
     public void setPCArch(HashMap<Integer, ArrayList<Arch>> pcEdges)
     {
-        this.pcEdges = pcEdges;
+        this.pcEdges = TablaArcos.fromMap(Arch.typeArch.PC, pcEdges);
     }
 
     /**
-     * Obtiene la lista de arcos CsubC
+     * Obtiene una copia de los arcos CsubC agrupados por origen
      *
      * @return lista de arcos
      */
     public HashMap<Integer, ArrayList<Arch>> getCsubCArch()
     {
-        return this.csubcEdges;
+        return this.csubcEdges.toMap();
     }
 
     /**
-     * Obtiene la lista de arcos CsupC
+     * Obtiene una copia de los arcos CsupC agrupados por origen
      *
      * @return lista de arcos
      */
     public HashMap<Integer, ArrayList<Arch>> getCsupCArch()
     {
-        return this.csupcEdges;
+        return this.csupcEdges.toMap();
     }
 
     /**
-     * Obtiene la lista de arcos CP
+     * Obtiene una copia de los arcos CP agrupados por origen
      *
      * @return lista de arcos
      */
     public HashMap<Integer, ArrayList<Arch>> getCPArch()
     {
-        return this.cpEdges;
+        return this.cpEdges.toMap();
     }
 
     /**
-     * Obtiene la lista de arcos PC
+     * Obtiene una copia de los arcos PC agrupados por origen
      *
      * @return lista de arcos
      */
     public HashMap<Integer, ArrayList<Arch>> getPCArch()
     {
-        return this.pcEdges;
+        return this.pcEdges.toMap();
     }
 
     /**
      * Traduce una categoria a su indice correspondiente
      *
-     * @param category categoria a buscar
+     * @param category categoria a buscar, puede ser null
      * @return indice o -1 si no está en el sistema
      */
     public Integer getCategoryNumber(Categoria category)
     {
-        if(this.categoriaIndex.containsKey(category))
+        if(category == null)
         {
-            return this.categoriaIndex.get(category);
+            return -1;
         }
-        return -1;
+        return this.categoriaIndex.buscar(category.getNombre());
     }
 
     /**
      * Traduce una pagina a su indice correspondiente
      *
-     * @param page pagina a buscar
+     * @param page pagina a buscar, puede ser null
      * @return indice o -1 si no está en el sistema
      */
     public Integer getPageNumber(Pagina page)
     {
-        if(this.paginaIndex.containsKey(page))
+        if(page == null)
         {
-            return this.paginaIndex.get(page);
+            return -1;
         }
-        return -1;
+        return this.paginaIndex.buscar(page.getNombre());
     }
 
     /**
@@ -638,11 +785,7 @@ public class GrafoEntrada implements Cloneable
      */
     public Categoria getNumberCategory(Integer nodeA)
     {
-        if(this.indexCategoria.containsKey(nodeA))
-        {
-            return this.indexCategoria.get(nodeA);
-        }
-        return null;
+        return this.categoriaIndex.getNodo(nodeA);
     }
 
     /**
@@ -653,11 +796,7 @@ public class GrafoEntrada implements Cloneable
      */
     public Pagina getNumberPage(Integer nodeA)
     {
-        if(this.indexPagina.containsKey(nodeA))
-        {
-            return this.indexPagina.get(nodeA);
-        }
-        return null;
+        return this.paginaIndex.getNodo(nodeA);
     }
 
     /**
@@ -705,31 +844,23 @@ public class GrafoEntrada implements Cloneable
      */
     public void setData(String sA, String tA, String tArch, String sB, String tB)
     {
-        Integer na, nb;
+        int na, nb;
         Arch arc = null;
         if(tA.equals("cat"))
         {
-            Categoria c = new Categoria(sA);
-            this.addCategoria(c);
-            na = this.categoriaIndex.get(c);
+            na = this.internarCategoria(sA);
         }
         else
         {
-            Pagina p = new Pagina(sA);
-            this.addPagina(p);
-            na = this.paginaIndex.get(p);
+            na = this.internarPagina(sA);
         }
         if(tB.equals("cat"))
         {
-            Categoria c = new Categoria(sB);
-            this.addCategoria(c);
-            nb = this.categoriaIndex.get(c);
+            nb = this.internarCategoria(sB);
         }
         else
         {
-            Pagina p = new Pagina(sB);
-            this.addPagina(p);
-            nb = this.paginaIndex.get(p);
+            nb = this.internarPagina(sB);
         }
         switch(tArch)
         {
@@ -747,11 +878,69 @@ public class GrafoEntrada implements Cloneable
                 break;
         }
         this.addArch(arc);
-        ++this.edgeSize;
     }
 
     /**
-     * Permite parsear una lista de Strings al grafo de entrada
+     * Obtiene el indice de una categoria por su nombre, dandola de alta si aun
+     * no existe. Solo se crea el objeto Categoria la primera vez que aparece
+     * el nombre
+     *
+     * @param name nombre de la categoria
+     * @return indice de la categoria
+     */
+    int internarCategoria(String name)
+    {
+        int value = this.categoriaIndex.buscar(name);
+        if(value == -1)
+        {
+            value = this.categoryId;
+            this.addCategoria(new Categoria(name));
+        }
+        return value;
+    }
+
+    /**
+     * Obtiene el indice de una pagina por su nombre, dandola de alta si aun no
+     * existe. Solo se crea el objeto Pagina la primera vez que aparece el
+     * nombre
+     *
+     * @param name nombre de la pagina
+     * @return indice de la pagina
+     */
+    int internarPagina(String name)
+    {
+        int value = this.paginaIndex.buscar(name);
+        if(value == -1)
+        {
+            value = this.pageId;
+            this.addPagina(new Pagina(name));
+        }
+        return value;
+    }
+
+    /**
+     * Añade de una vez muchos arcos de un tipo entre nodos que ya existen,
+     * igual que añadirlos uno a uno en orden
+     *
+     * @param type tipo de los arcos
+     * @param origins origen de cada arco
+     * @param destinies destino de cada arco
+     * @param pool tareas en paralelo, o null para hacerlo en secuencial
+     */
+    void anadirArcos(Arch.typeArch type, int[] origins, int[] destinies, ForkJoinPool pool)
+    {
+        this.separar();
+        if(type == Arch.typeArch.CsubC || type == Arch.typeArch.CsupC)
+        {
+            this.jerarquia = null;
+        }
+        this.getTabla(type).anadirTodos(origins, destinies, pool);
+    }
+
+    /**
+     * Permite parsear una lista de Strings al grafo de entrada. Las listas
+     * grandes se cargan en paralelo con ConstructorGrafo, con el mismo
+     * resultado que linea a linea
      *
      * @param list datos de entrada
      */
@@ -761,11 +950,19 @@ public class GrafoEntrada implements Cloneable
         {
             return;
         }
-        for(String s : list)
+        this.separar();
+        if(list.size() < ConstructorGrafo.UMBRAL_LINEAS || !new ConstructorGrafo(list).cargar(this))
         {
-            String data[] = s.split("\\s+");
-            this.setData(data[0], data[1], data[2], data[3], data[4]);
+            for(String s : list)
+            {
+                String data[] = s.split("\\s+");
+                this.setData(data[0], data[1], data[2], data[3], data[4]);
+            }
         }
+        this.csubcEdges.ajustar();
+        this.csupcEdges.ajustar();
+        this.cpEdges.ajustar();
+        this.pcEdges.ajustar();
     }
 
     /**
@@ -776,53 +973,40 @@ public class GrafoEntrada implements Cloneable
     public ArrayList<String> saveToFile()
     {
         ArrayList<String> response = new ArrayList();
-        Iterator<Entry<Integer, ArrayList<Arch>>> it;
-        it = this.csubcEdges.entrySet().iterator();
         String A, B;
-        while(it.hasNext())
+        for(int origin = 0; origin < this.csubcEdges.getCapacidad(); ++origin)
         {
-            Entry<Integer, ArrayList<Arch>> entry = it.next();
-            ArrayList<Arch> arcs = entry.getValue();
-            for(Arch arc : arcs)
+            for(int i = 0; i < this.csubcEdges.getGrado(origin); ++i)
             {
-                A = this.getNumberNameCategory(arc.getOrigin());
-                B = this.getNumberNameCategory(arc.getDestiny());
+                A = this.getNumberNameCategory(origin);
+                B = this.getNumberNameCategory(this.csubcEdges.getDestino(origin, i));
                 response.add(A + "   cat   CsubC   " + B + "   cat");
             }
         }
-        it = this.csupcEdges.entrySet().iterator();
-        while(it.hasNext())
+        for(int origin = 0; origin < this.csupcEdges.getCapacidad(); ++origin)
         {
-            Entry<Integer, ArrayList<Arch>> entry = it.next();
-            ArrayList<Arch> arcs = entry.getValue();
-            for(Arch arc : arcs)
+            for(int i = 0; i < this.csupcEdges.getGrado(origin); ++i)
             {
-                A = this.getNumberNameCategory(arc.getOrigin());
-                B = this.getNumberNameCategory(arc.getDestiny());
+                A = this.getNumberNameCategory(origin);
+                B = this.getNumberNameCategory(this.csupcEdges.getDestino(origin, i));
                 response.add(A + "   cat   CsupC   " + B + "   cat");
             }
         }
-        it = this.cpEdges.entrySet().iterator();
-        while(it.hasNext())
+        for(int origin = 0; origin < this.cpEdges.getCapacidad(); ++origin)
         {
-            Entry<Integer, ArrayList<Arch>> entry = it.next();
-            ArrayList<Arch> arcs = entry.getValue();
-            for(Arch arc : arcs)
+            for(int i = 0; i < this.cpEdges.getGrado(origin); ++i)
             {
-                A = this.getNumberNameCategory(arc.getOrigin());
-                B = this.getNumberNamePage(arc.getDestiny());
+                A = this.getNumberNameCategory(origin);
+                B = this.getNumberNamePage(this.cpEdges.getDestino(origin, i));
                 response.add(A + "   cat   CP   " + B + "   page");
             }
         }
-        it = this.pcEdges.entrySet().iterator();
-        while(it.hasNext())
+        for(int origin = 0; origin < this.pcEdges.getCapacidad(); ++origin)
         {
-            Entry<Integer, ArrayList<Arch>> entry = it.next();
-            ArrayList<Arch> arcs = entry.getValue();
-            for(Arch arc : arcs)
+            for(int i = 0; i < this.pcEdges.getGrado(origin); ++i)
             {
-                A = this.getNumberNamePage(arc.getOrigin());
-                B = this.getNumberNameCategory(arc.getDestiny());
+                A = this.getNumberNamePage(origin);
+                B = this.getNumberNameCategory(this.pcEdges.getDestino(origin, i));
                 response.add(A + "   page   PC   " + B + "   cat");
             }
         }
@@ -830,31 +1014,16 @@ public class GrafoEntrada implements Cloneable
     }
 
     /**
-     * Se encarga de buscar todos aquellos arcos que faltan por eliminar
+     * Se encarga de buscar todos aquellos arcos que faltan por eliminar. Usa
+     * el indice inverso de la tabla, asi que solo recorre los origenes que
+     * llegan al nodo
      *
      * @param destiny nodo destino para buscar
      * @param edges estructura de datos donde realizar la busqueda
      */
-    private void removeDestiny(Integer destiny, HashMap<Integer, ArrayList<Arch>> edges)
+    private void removeDestiny(Integer destiny, TablaArcos edges)
     {
-        Iterator<Entry<Integer, ArrayList<Arch>>> it = edges.entrySet().iterator();
-        while(it.hasNext())
-        {
-            Entry<Integer, ArrayList<Arch>> entry = it.next();
-            Integer origin = entry.getKey();
-            ArrayList<Arch> arcs = entry.getValue();
-            Iterator<Arch> at = arcs.iterator();
-            while(at.hasNext())
-            {
-                Arch arc = at.next();
-                if(arc.getDestiny() == destiny)
-                {
-                    at.remove();
-                    --this.edgeSize;
-                }
-            }
-            edges.put(origin, arcs);
-        }
+        edges.quitarDestino(destiny);
     }
 
     /**
@@ -865,11 +1034,17 @@ public class GrafoEntrada implements Cloneable
      */
     public void removeCategoria(Categoria category)
     {
-        Integer numCategory = this.categoriaIndex.remove(category);
-        this.indexCategoria.remove(numCategory);
-        this.csubcEdges.remove(numCategory);
-        this.csupcEdges.remove(numCategory);
-        this.cpEdges.remove(numCategory);
+        int numCategory = this.categoriaIndex.buscar(category.getNombre());
+        if(numCategory == -1)
+        {
+            return;
+        }
+        this.separar();
+        this.jerarquia = null;
+        this.categoriaIndex.quitar(numCategory);
+        this.csubcEdges.quitarFila(numCategory);
+        this.csupcEdges.quitarFila(numCategory);
+        this.cpEdges.quitarFila(numCategory);
         this.removeDestiny(numCategory, this.pcEdges);
         this.removeDestiny(numCategory, this.csubcEdges);
         this.removeDestiny(numCategory, this.csupcEdges);
@@ -883,9 +1058,14 @@ public class GrafoEntrada implements Cloneable
      */
     public void removePagina(Pagina page)
     {
-        Integer numPage = this.paginaIndex.remove(page);
-        this.indexPagina.remove(numPage);
-        this.pcEdges.remove(numPage);
+        int numPage = this.paginaIndex.buscar(page.getNombre());
+        if(numPage == -1)
+        {
+            return;
+        }
+        this.separar();
+        this.paginaIndex.quitar(numPage);
+        this.pcEdges.quitarFila(numPage);
         this.removeDestiny(numPage, this.cpEdges);
     }
 
@@ -897,19 +1077,8 @@ public class GrafoEntrada implements Cloneable
      */
     public void removeArchPageCategory(Integer page, Integer category)
     {
-        if(this.pcEdges.containsKey(page))
-        {
-            ArrayList<Arch> arcs = this.pcEdges.get(page);
-            Iterator<Arch> it = arcs.iterator();
-            while(it.hasNext())
-            {
-                if(it.next().getDestiny() == category)
-                {
-                    it.remove();
-                    --this.edgeSize;
-                }
-            }
-        }
+        this.separar();
+        this.pcEdges.quitar(page, category);
     }
 
     /**
@@ -920,19 +1089,8 @@ public class GrafoEntrada implements Cloneable
      */
     public void removeArchCategoryPage(Integer category, Integer page)
     {
-        if(this.cpEdges.containsKey(category))
-        {
-            ArrayList<Arch> arcs = this.cpEdges.get(category);
-            Iterator<Arch> it = arcs.iterator();
-            while(it.hasNext())
-            {
-                if(it.next().getDestiny() == page)
-                {
-                    it.remove();
-                    --this.edgeSize;
-                }
-            }
-        }
+        this.separar();
+        this.cpEdges.quitar(category, page);
     }
 
     /**
@@ -943,19 +1101,9 @@ public class GrafoEntrada implements Cloneable
      */
     public void removeArchCategorySubCategory(Integer categoryA, Integer categoryB)
     {
-        if(this.csubcEdges.containsKey(categoryA))
-        {
-            ArrayList<Arch> arcs = this.csubcEdges.get(categoryA);
-            Iterator<Arch> it = arcs.iterator();
-            while(it.hasNext())
-            {
-                if(it.next().getDestiny() == categoryB)
-                {
-                    it.remove();
-                    --this.edgeSize;
-                }
-            }
-        }
+        this.separar();
+        this.jerarquia = null;
+        this.csubcEdges.quitar(categoryA, categoryB);
     }
 
     /**
@@ -966,19 +1114,9 @@ public class GrafoEntrada implements Cloneable
      */
     public void removeArchCategorySupCategory(Integer categoryA, Integer categoryB)
     {
-        if(this.csupcEdges.containsKey(categoryA))
-        {
-            ArrayList<Arch> arcs = this.csupcEdges.get(categoryA);
-            Iterator<Arch> it = arcs.iterator();
-            while(it.hasNext())
-            {
-                if(it.next().getDestiny() == categoryB)
-                {
-                    it.remove();
-                    --this.edgeSize;
-                }
-            }
-        }
+        this.separar();
+        this.jerarquia = null;
+        this.csupcEdges.quitar(categoryA, categoryB);
     }
 
     /**
@@ -990,18 +1128,9 @@ public class GrafoEntrada implements Cloneable
      */
     private void addArchPageCategory(Integer page, Integer category, Arch arc)
     {
-        if(this.indexPagina.containsKey(page) && this.indexCategoria.containsKey(category))
+        if(this.paginaIndex.contiene(page) && this.categoriaIndex.contiene(category))
         {
-            ArrayList<Arch> arcs = this.pcEdges.get(page);
-            if(arcs.contains(arc))
-            {
-                arcs.set(arcs.indexOf(arc), arc);
-            }
-            else
-            {
-                arcs.add(arc);
-            }
-            this.pcEdges.put(page, arcs);
+            this.pcEdges.anadir(page, category);
         }
     }
 
@@ -1014,18 +1143,9 @@ public class GrafoEntrada implements Cloneable
      */
     private void addArchCategoryPage(Integer category, Integer page, Arch arc)
     {
-        if(this.indexPagina.containsKey(page) && this.indexCategoria.containsKey(category))
+        if(this.paginaIndex.contiene(page) && this.categoriaIndex.contiene(category))
         {
-            ArrayList<Arch> arcs = this.cpEdges.get(category);
-            if(arcs.contains(arc))
-            {
-                arcs.set(arcs.indexOf(arc), arc);
-            }
-            else
-            {
-                arcs.add(arc);
-            }
-            this.cpEdges.put(category, arcs);
+            this.cpEdges.anadir(category, page);
         }
     }
 
@@ -1038,18 +1158,9 @@ public class GrafoEntrada implements Cloneable
      */
     private void addArchCategorySubCategory(Integer categoryA, Integer CategoryB, Arch arc)
     {
-        if(this.indexCategoria.containsKey(categoryA) && this.indexCategoria.containsKey(CategoryB))
+        if(this.categoriaIndex.contiene(categoryA) && this.categoriaIndex.contiene(CategoryB))
         {
-            ArrayList<Arch> arcs = this.csubcEdges.get(categoryA);
-            if(arcs.contains(arc))
-            {
-                arcs.set(arcs.indexOf(arc), arc);
-            }
-            else
-            {
-                arcs.add(arc);
-            }
-            this.csubcEdges.put(categoryA, arcs);
+            this.csubcEdges.anadir(categoryA, CategoryB);
         }
     }
 
@@ -1062,18 +1173,9 @@ public class GrafoEntrada implements Cloneable
      */
     private void addArchCategorySupCategory(Integer categoryA, Integer CategoryB, Arch arc)
     {
-        if(this.indexCategoria.containsKey(categoryA) && this.indexCategoria.containsKey(CategoryB))
+        if(this.categoriaIndex.contiene(categoryA) && this.categoriaIndex.contiene(CategoryB))
         {
-            ArrayList<Arch> arcs = this.csupcEdges.get(categoryA);
-            if(arcs.contains(arc))
-            {
-                arcs.set(arcs.indexOf(arc), arc);
-            }
-            else
-            {
-                arcs.add(arc);
-            }
-            this.csupcEdges.put(categoryA, arcs);
+            this.csupcEdges.anadir(categoryA, CategoryB);
         }
     }
 
@@ -1084,15 +1186,18 @@ public class GrafoEntrada implements Cloneable
      */
     public void addArch(Arch arc)
     {
+        this.separar();
         Integer origin = arc.getOrigin();
         Integer destiny = arc.getDestiny();
         Arch.typeArch tipo = arc.getTypeArch();
         switch(tipo)
         {
             case CsupC:
+                this.jerarquia = null;
                 this.addArchCategorySupCategory(origin, destiny, arc);
                 break;
             case CsubC:
+                this.jerarquia = null;
                 this.addArchCategorySubCategory(origin, destiny, arc);
                 break;
             case CP:
@@ -1113,13 +1218,13 @@ public class GrafoEntrada implements Cloneable
     public boolean addCategoria(Categoria category)
     {
         int value = this.getCategoryNumber(category);
-        if(value == -1)
+        if(category != null && value == -1)
         {
-            this.indexCategoria.put(this.categoryId, category);
-            this.categoriaIndex.put(category, this.categoryId);
-            this.cpEdges.put(this.categoryId, new ArrayList<Arch>());
-            this.csubcEdges.put(this.categoryId, new ArrayList<Arch>());
-            this.csupcEdges.put(this.categoryId, new ArrayList<Arch>());
+            this.separar();
+            this.categoriaIndex.poner(category, this.categoryId);
+            this.cpEdges.crearFila(this.categoryId);
+            this.csubcEdges.crearFila(this.categoryId);
+            this.csupcEdges.crearFila(this.categoryId);
             ++this.categoryId;
             return true;
         }
@@ -1134,11 +1239,11 @@ public class GrafoEntrada implements Cloneable
      */
     public boolean addPagina(Pagina page)
     {
-        if(this.getPageNumber(page) == -1)
+        if(page != null && this.getPageNumber(page) == -1)
         {
-            this.indexPagina.put(this.pageId, page);
-            this.paginaIndex.put(page, this.pageId);
-            this.pcEdges.put(this.pageId, new ArrayList<Arch>());
+            this.separar();
+            this.paginaIndex.poner(page, this.pageId);
+            this.pcEdges.crearFila(this.pageId);
             ++this.pageId;
             return true;
         }
@@ -1156,9 +1261,6 @@ public class GrafoEntrada implements Cloneable
         int hash = 7;
         hash = 67 * hash + Objects.hashCode(this.categoryId);
         hash = 67 * hash + Objects.hashCode(this.pageId);
-        hash = 67 * hash + this.edgeSize;
-        hash = 67 * hash + Objects.hashCode(this.indexCategoria);
-        hash = 67 * hash + Objects.hashCode(this.indexPagina);
         hash = 67 * hash + Objects.hashCode(this.categoriaIndex);
         hash = 67 * hash + Objects.hashCode(this.paginaIndex);
         hash = 67 * hash + Objects.hashCode(this.csupcEdges);
@@ -1194,18 +1296,6 @@ public class GrafoEntrada implements Cloneable
         {
             return false;
         }
-        if(this.edgeSize != other.edgeSize)
-        {
-            return false;
-        }
-        if(!Objects.equals(this.indexCategoria, other.indexCategoria))
-        {
-            return false;
-        }
-        if(!Objects.equals(this.indexPagina, other.indexPagina))
-        {
-            return false;
-        }
         if(!Objects.equals(this.categoriaIndex, other.categoriaIndex))
         {
             return false;
@@ -1230,7 +1320,10 @@ public class GrafoEntrada implements Cloneable
     }
 
     /**
-     * Permite crear una copia nueva y exacta de este grafo de entrada
+     * Permite crear una copia nueva y exacta de este grafo de entrada. La copia
+     * comparte las estructuras con este grafo, asi que cuesta O(1); el primero
+     * de los dos que se modifica se queda las suyas, y dentro de las tablas de
+     * arcos cada fila solo se copia cuando se modifica
      *
      * @return Grafo de entrada nuevo con los mismos datos
      */
@@ -1241,21 +1334,30 @@ public class GrafoEntrada implements Cloneable
         try
         {
             obj = (GrafoEntrada) super.clone();
-            obj.categoriaIndex = (HashMap<Categoria, Integer>) this.categoriaIndex.clone();
-            obj.categoryId = this.categoryId;
-            obj.cpEdges = (HashMap<Integer, ArrayList<Arch>>) this.cpEdges.clone();
-            obj.csubcEdges = (HashMap<Integer, ArrayList<Arch>>) this.csubcEdges.clone();
-            obj.csupcEdges = (HashMap<Integer, ArrayList<Arch>>) this.csupcEdges.clone();
-            obj.edgeSize = this.edgeSize;
-            obj.indexCategoria = (HashMap<Integer, Categoria>) this.indexCategoria.clone();
-            obj.indexPagina = (HashMap<Integer, Pagina>) this.indexPagina.clone();
-            obj.pageId = this.pageId;
-            obj.paginaIndex = (HashMap<Pagina, Integer>) this.paginaIndex.clone();
-            obj.pcEdges = (HashMap<Integer, ArrayList<Arch>>) this.pcEdges.clone();
+            this.categoriaIndex.compartir();
+            this.paginaIndex.compartir();
+            this.csubcEdges.compartir();
+            this.csupcEdges.compartir();
+            this.cpEdges.compartir();
+            this.pcEdges.compartir();
         }
         catch(CloneNotSupportedException e)
         {
         }
         return obj;
     }
+
+    /**
+     * Se asegura de que ninguna estructura de este grafo esta compartida con
+     * un clon, debe llamarse antes de cualquier modificacion
+     */
+    private void separar()
+    {
+        this.categoriaIndex = this.categoriaIndex.paraEscribir();
+        this.paginaIndex = this.paginaIndex.paraEscribir();
+        this.csubcEdges = this.csubcEdges.paraEscribir();
+        this.csupcEdges = this.csupcEdges.paraEscribir();
+        this.cpEdges = this.cpEdges.paraEscribir();
+        this.pcEdges = this.pcEdges.paraEscribir();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,904 @@
+package domain.grafos;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Indice precalculado de ascendientes y descendientes de la jerarquia de
+ * categorias. Un arco CsubC A -> B hace de B una subcategoria de A y un arco
+ * CsupC A -> B hace de B una supercategoria de A; el indice junta los dos.
+ *
+ * Los ciclos se condensan en sus componentes fuertemente conexas, y sobre el
+ * grafo aciclico resultante cada componente guarda los componentes que
+ * alcanza como una lista ordenada de intervalos de su numeracion en
+ * postorden. Saber si una categoria desciende de otra es una busqueda binaria
+ * en esa lista y contar descendientes o ascendientes comunes es recorrer los
+ * intervalos, sin hacer ningun recorrido del grafo. Las listas de un mismo
+ * nivel no dependen entre si y se calculan en paralelo.
+ *
+ * En el peor caso, por ejemplo cuando muchas categorias comparten muchos
+ * descendientes que no quedan seguidos en el postorden, las listas suman
+ * O(k^2) intervalos para k componentes, y calcularlas cuesta O(k * m log m)
+ * para m arcos. Por eso el trabajo del etiquetado se limita a un multiplo del
+ * tamaño del grafo: si se supera, se descartan los intervalos y cada consulta
+ * recorre el grafo de componentes desde la categoria, en O(k + m).
+ *
+ * El indice es inmutable: el grafo lo descarta cuando cambian sus categorias
+ * o los arcos entre ellas
+ *
+ * @author Cluster 7 sub 3
+ */
+class IndiceJerarquia
+{
+    /**
+     * Componentes de un nivel a partir de los que se reparten entre tareas
+     */
+    private static final int UMBRAL_PARALELO = 256;
+    /**
+     * Intervalos que puede juntar el etiquetado por cada componente o arco
+     * del grafo de componentes, y minimo que se permite siempre
+     */
+    private static final int FACTOR_INTERVALOS = 8;
+    private static final int MINIMO_INTERVALOS = 1 << 20;
+    /**
+     * Componente de cada categoria, -1 si el indice no es de una categoria
+     */
+    private final int[] componente;
+    /**
+     * Categorias de cada componente c, de miembros[inicioMiembros[c]] a
+     * miembros[inicioMiembros[c + 1] - 1]
+     */
+    private final int[] inicioMiembros;
+    private final int[] miembros;
+    /**
+     * Indica si cada componente tiene algun ciclo, aunque sea un arco de una
+     * categoria a si misma
+     */
+    private final boolean[] ciclico;
+    private final Etiquetado descendientes;
+    private final Etiquetado ascendientes;
+
+    /**
+     * Construye el indice a partir de los arcos entre categorias
+     *
+     * @param csubc arcos CsubC
+     * @param csupc arcos CsupC
+     * @param categorias categorias del grafo
+     * @param n uno mas que el mayor indice de categoria
+     */
+    public IndiceJerarquia(TablaArcos csubc, TablaArcos csupc, DiccionarioNombres<Categoria> categorias, int n)
+    {
+        // Arcos de cada categoria a sus subcategorias, como listas contiguas
+        int[] inicio = new int[n + 1];
+        for(int o = 0; o < n; ++o)
+        {
+            if(!categorias.contiene(o))
+            {
+                continue;
+            }
+            for(int i = 0; i < csubc.getGrado(o); ++i)
+            {
+                int d = csubc.getDestino(o, i);
+                if(d < n && categorias.contiene(d))
+                {
+                    ++inicio[o + 1];
+                }
+            }
+            for(int i = 0; i < csupc.getGrado(o); ++i)
+            {
+                int d = csupc.getDestino(o, i);
+                if(d < n && categorias.contiene(d))
+                {
+                    ++inicio[d + 1];
+                }
+            }
+        }
+        for(int o = 0; o < n; ++o)
+        {
+            inicio[o + 1] += inicio[o];
+        }
+        int[] hijos = new int[inicio[n]];
+        int[] pos = Arrays.copyOf(inicio, n);
+        for(int o = 0; o < n; ++o)
+        {
+            if(!categorias.contiene(o))
+            {
+                continue;
+            }
+            for(int i = 0; i < csubc.getGrado(o); ++i)
+            {
+                int d = csubc.getDestino(o, i);
+                if(d < n && categorias.contiene(d))
+                {
+                    hijos[pos[o]++] = d;
+                }
+            }
+            for(int i = 0; i < csupc.getGrado(o); ++i)
+            {
+                int d = csupc.getDestino(o, i);
+                if(d < n && categorias.contiene(d))
+                {
+                    hijos[pos[d]++] = o;
+                }
+            }
+        }
+        this.componente = new int[n];
+        int k = this.condensar(inicio, hijos, categorias);
+        // Miembros de cada componente
+        this.inicioMiembros = new int[k + 1];
+        for(int v = 0; v < n; ++v)
+        {
+            if(this.componente[v] >= 0)
+            {
+                ++this.inicioMiembros[this.componente[v] + 1];
+            }
+        }
+        for(int c = 0; c < k; ++c)
+        {
+            this.inicioMiembros[c + 1] += this.inicioMiembros[c];
+        }
+        this.miembros = new int[this.inicioMiembros[k]];
+        pos = Arrays.copyOf(this.inicioMiembros, k);
+        for(int v = 0; v < n; ++v)
+        {
+            if(this.componente[v] >= 0)
+            {
+                this.miembros[pos[this.componente[v]]++] = v;
+            }
+        }
+        // Grafo de componentes sin repetidos ni bucles, y su inverso
+        this.ciclico = new boolean[k];
+        int[] marca = new int[k];
+        Arrays.fill(marca, -1);
+        int[] inicioDag = new int[k + 1];
+        int[] dag = new int[hijos.length];
+        int m = 0;
+        for(int c = 0; c < k; ++c)
+        {
+            inicioDag[c] = m;
+            for(int j = this.inicioMiembros[c]; j < this.inicioMiembros[c + 1]; ++j)
+            {
+                int v = this.miembros[j];
+                for(int i = inicio[v]; i < inicio[v + 1]; ++i)
+                {
+                    int d = this.componente[hijos[i]];
+                    if(d == c)
+                    {
+                        this.ciclico[c] = true;
+                    }
+                    else if(marca[d] != c)
+                    {
+                        marca[d] = c;
+                        dag[m++] = d;
+                    }
+                }
+            }
+        }
+        inicioDag[k] = m;
+        int[] inicioInverso = new int[k + 1];
+        for(int i = 0; i < m; ++i)
+        {
+            ++inicioInverso[dag[i] + 1];
+        }
+        for(int c = 0; c < k; ++c)
+        {
+            inicioInverso[c + 1] += inicioInverso[c];
+        }
+        int[] inverso = new int[m];
+        pos = Arrays.copyOf(inicioInverso, k);
+        for(int c = 0; c < k; ++c)
+        {
+            for(int i = inicioDag[c]; i < inicioDag[c + 1]; ++i)
+            {
+                inverso[pos[dag[i]]++] = c;
+            }
+        }
+        int[] tamanos = new int[k];
+        for(int c = 0; c < k; ++c)
+        {
+            tamanos[c] = this.inicioMiembros[c + 1] - this.inicioMiembros[c];
+        }
+        ForkJoinPool pool = k >= UMBRAL_PARALELO ? new ForkJoinPool() : null;
+        try
+        {
+            this.descendientes = new Etiquetado(inicioDag, dag, tamanos, pool);
+            this.ascendientes = new Etiquetado(inicioInverso, inverso, tamanos, pool);
+        }
+        finally
+        {
+            if(pool != null)
+            {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Calcula las componentes fuertemente conexas con el algoritmo de Tarjan,
+     * sin recursion para no desbordar la pila en jerarquias profundas. Deja en
+     * componente la de cada categoria
+     *
+     * @param inicio inicio de la lista de hijos de cada categoria
+     * @param hijos hijos de todas las categorias
+     * @param categorias categorias del grafo
+     * @return numero de componentes
+     */
+    private int condensar(int[] inicio, int[] hijos, DiccionarioNombres<Categoria> categorias)
+    {
+        int n = this.componente.length;
+        Arrays.fill(this.componente, -1);
+        int[] orden = new int[n];
+        int[] bajo = new int[n];
+        Arrays.fill(orden, -1);
+        int[] pila = new int[n];
+        int cima = 0;
+        int[] llamadas = new int[n];
+        int[] siguiente = new int[n];
+        int contador = 0;
+        int k = 0;
+        for(int raiz = 0; raiz < n; ++raiz)
+        {
+            if(orden[raiz] >= 0 || !categorias.contiene(raiz))
+            {
+                continue;
+            }
+            int profundidad = 0;
+            llamadas[profundidad++] = raiz;
+            orden[raiz] = bajo[raiz] = contador++;
+            siguiente[raiz] = inicio[raiz];
+            pila[cima++] = raiz;
+            while(profundidad > 0)
+            {
+                int v = llamadas[profundidad - 1];
+                if(siguiente[v] < inicio[v + 1])
+                {
+                    int w = hijos[siguiente[v]++];
+                    if(orden[w] < 0)
+                    {
+                        orden[w] = bajo[w] = contador++;
+                        siguiente[w] = inicio[w];
+                        pila[cima++] = w;
+                        llamadas[profundidad++] = w;
+                    }
+                    else if(this.componente[w] < 0)
+                    {
+                        bajo[v] = Math.min(bajo[v], orden[w]);
+                    }
+                    continue;
+                }
+                --profundidad;
+                if(profundidad > 0)
+                {
+                    int padre = llamadas[profundidad - 1];
+                    bajo[padre] = Math.min(bajo[padre], bajo[v]);
+                }
+                if(bajo[v] == orden[v])
+                {
+                    int w;
+                    do
+                    {
+                        w = pila[--cima];
+                        this.componente[w] = k;
+                    }
+                    while(w != v);
+                    ++k;
+                }
+            }
+        }
+        return k;
+    }
+
+    /**
+     * Indica si una categoria es descendiente de otra, es decir, si se llega
+     * de la primera a la segunda bajando por subcategorias. Una categoria solo
+     * desciende de si misma si forma parte de un ciclo
+     *
+     * @param ascendiente indice de la categoria superior
+     * @param categoria indice de la categoria a consultar
+     * @return true si categoria desciende de ascendiente
+     */
+    public boolean esDescendiente(int ascendiente, int categoria)
+    {
+        if(!this.esCategoria(ascendiente) || !this.esCategoria(categoria))
+        {
+            return false;
+        }
+        int ca = this.componente[ascendiente];
+        int cb = this.componente[categoria];
+        if(ca == cb)
+        {
+            return ascendiente != categoria || this.ciclico[ca];
+        }
+        return this.descendientes.alcanza(ca, cb);
+    }
+
+    /**
+     * Obtiene las categorias que descienden de una categoria, sin contarla a
+     * ella
+     *
+     * @param categoria indice de la categoria
+     * @return indices de los descendientes
+     */
+    public ArrayList<Integer> getDescendientes(int categoria)
+    {
+        return this.listar(this.descendientes, categoria);
+    }
+
+    /**
+     * Obtiene las categorias de las que desciende una categoria, sin contarla
+     * a ella
+     *
+     * @param categoria indice de la categoria
+     * @return indices de los ascendientes
+     */
+    public ArrayList<Integer> getAscendientes(int categoria)
+    {
+        return this.listar(this.ascendientes, categoria);
+    }
+
+    /**
+     * Obtiene el numero de descendientes de una categoria
+     *
+     * @param categoria indice de la categoria
+     * @return numero de descendientes
+     */
+    public int getNumDescendientes(int categoria)
+    {
+        if(!this.esCategoria(categoria))
+        {
+            return 0;
+        }
+        return this.descendientes.contar(this.componente[categoria]) - 1;
+    }
+
+    /**
+     * Obtiene el numero de ascendientes de una categoria
+     *
+     * @param categoria indice de la categoria
+     * @return numero de ascendientes
+     */
+    public int getNumAscendientes(int categoria)
+    {
+        if(!this.esCategoria(categoria))
+        {
+            return 0;
+        }
+        return this.ascendientes.contar(this.componente[categoria]) - 1;
+    }
+
+    /**
+     * Obtiene el numero de descendientes que tienen en comun dos categorias
+     *
+     * @param a indice de la primera categoria
+     * @param b indice de la segunda categoria
+     * @return numero de descendientes comunes
+     */
+    public int getDescendientesComunes(int a, int b)
+    {
+        return this.comunes(this.descendientes, a, b);
+    }
+
+    /**
+     * Obtiene el numero de ascendientes que tienen en comun dos categorias
+     *
+     * @param a indice de la primera categoria
+     * @param b indice de la segunda categoria
+     * @return numero de ascendientes comunes
+     */
+    public int getAscendientesComunes(int a, int b)
+    {
+        return this.comunes(this.ascendientes, a, b);
+    }
+
+    /**
+     * Indica si un indice es de una categoria incluida en el indice
+     *
+     * @param categoria indice a consultar
+     * @return true si lo es
+     */
+    private boolean esCategoria(int categoria)
+    {
+        return categoria >= 0 && categoria < this.componente.length && this.componente[categoria] >= 0;
+    }
+
+    /**
+     * Lista las categorias que alcanza una categoria en un sentido, sin ella
+     *
+     * @param etiquetado etiquetado del sentido a recorrer
+     * @param categoria indice de la categoria
+     * @return indices alcanzados
+     */
+    private ArrayList<Integer> listar(Etiquetado etiquetado, int categoria)
+    {
+        if(!this.esCategoria(categoria))
+        {
+            return new ArrayList<>();
+        }
+        int[] alcanzados = etiquetado.alcanzados(this.componente[categoria]);
+        ArrayList<Integer> response = new ArrayList<>();
+        for(int d : alcanzados)
+        {
+            for(int j = this.inicioMiembros[d]; j < this.inicioMiembros[d + 1]; ++j)
+            {
+                if(this.miembros[j] != categoria)
+                {
+                    response.add(this.miembros[j]);
+                }
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Cuenta las categorias que alcanzan a la vez dos categorias en un
+     * sentido, sin contar ninguna de las dos
+     *
+     * @param etiquetado etiquetado del sentido a recorrer
+     * @param a indice de la primera categoria
+     * @param b indice de la segunda categoria
+     * @return numero de categorias comunes
+     */
+    private int comunes(Etiquetado etiquetado, int a, int b)
+    {
+        if(!this.esCategoria(a) || !this.esCategoria(b))
+        {
+            return 0;
+        }
+        int ca = this.componente[a];
+        int cb = this.componente[b];
+        if(a == b)
+        {
+            return etiquetado.contar(ca) - 1;
+        }
+        int total = etiquetado.contarInterseccion(ca, cb);
+        if(etiquetado.alcanza(cb, ca))
+        {
+            --total;
+        }
+        if(etiquetado.alcanza(ca, cb))
+        {
+            --total;
+        }
+        return total;
+    }
+
+    /**
+     * Etiquetado por intervalos de un grafo aciclico de componentes: los
+     * componentes se numeran en postorden y cada uno guarda los numeros de
+     * los que alcanza, el mismo incluido, como intervalos disjuntos y
+     * ordenados [inicio, fin] puestos uno detras de otro. Si los intervalos
+     * superan el limite no se guardan y las consultas recorren el grafo
+     */
+    private static class Etiquetado
+    {
+        private final int[] post;
+        private final int[] porPost;
+        /**
+         * Numero de categorias de los componentes con postorden menor que
+         * cada posicion, para contar las de un intervalo con una resta
+         */
+        private final long[] acumulado;
+        private int[][] intervalos;
+        private final int[] inicioArcos;
+        private final int[] arcos;
+        private final int[] inicioArbol;
+        /**
+         * Intervalos que aun se pueden juntar antes de renunciar al
+         * etiquetado
+         */
+        private final AtomicLong restantes;
+        private volatile boolean desbordado;
+
+        /**
+         * Calcula el etiquetado de un grafo aciclico
+         *
+         * @param inicioArcos inicio de los sucesores de cada componente
+         * @param arcos sucesores de todos los componentes
+         * @param tamanos numero de categorias de cada componente
+         * @param pool tareas en paralelo, o null para calcular en secuencial
+         */
+        public Etiquetado(int[] inicioArcos, int[] arcos, int[] tamanos, ForkJoinPool pool)
+        {
+            int k = tamanos.length;
+            this.inicioArcos = inicioArcos;
+            this.arcos = arcos;
+            this.post = new int[k];
+            this.porPost = new int[k];
+            this.inicioArbol = new int[k];
+            this.intervalos = new int[k][];
+            this.restantes = new AtomicLong(Math.max(MINIMO_INTERVALOS, FACTOR_INTERVALOS * ((long) k + arcos.length)));
+            this.numerar();
+            this.acumulado = new long[k + 1];
+            for(int p = 0; p < k; ++p)
+            {
+                this.acumulado[p + 1] = this.acumulado[p] + tamanos[this.porPost[p]];
+            }
+            // En postorden los sucesores siempre van antes, asi que el nivel
+            // de cada componente sale en una sola pasada
+            int[] nivel = new int[k];
+            int niveles = 0;
+            for(int p = 0; p < k; ++p)
+            {
+                int c = this.porPost[p];
+                int l = 0;
+                for(int i = inicioArcos[c]; i < inicioArcos[c + 1]; ++i)
+                {
+                    l = Math.max(l, nivel[arcos[i]] + 1);
+                }
+                nivel[c] = l;
+                niveles = Math.max(niveles, l + 1);
+            }
+            int[] inicioNivel = new int[niveles + 1];
+            for(int c = 0; c < k; ++c)
+            {
+                ++inicioNivel[nivel[c] + 1];
+            }
+            for(int l = 0; l < niveles; ++l)
+            {
+                inicioNivel[l + 1] += inicioNivel[l];
+            }
+            int[] porNivel = new int[k];
+            int[] pos = Arrays.copyOf(inicioNivel, niveles);
+            for(int c = 0; c < k; ++c)
+            {
+                porNivel[pos[nivel[c]]++] = c;
+            }
+            for(int l = 0; l < niveles && !this.desbordado; ++l)
+            {
+                int desde = inicioNivel[l];
+                int hasta = inicioNivel[l + 1];
+                if(pool != null && hasta - desde >= UMBRAL_PARALELO)
+                {
+                    pool.invoke(new TareaNivel(this, porNivel, desde, hasta));
+                }
+                else
+                {
+                    for(int i = desde; i < hasta; ++i)
+                    {
+                        this.calcular(porNivel[i]);
+                    }
+                }
+            }
+            if(this.desbordado)
+            {
+                this.intervalos = null;
+            }
+        }
+
+        /**
+         * Numera los componentes en postorden con un recorrido en profundidad
+         * sin recursion. Los que se numeran entre la entrada y la salida de un
+         * componente son su subarbol, que queda como el intervalo
+         * [inicioArbol, post]
+         */
+        private void numerar()
+        {
+            int k = this.post.length;
+            boolean[] visto = new boolean[k];
+            int[] llamadas = new int[k];
+            int[] siguiente = new int[k];
+            int contador = 0;
+            for(int raiz = 0; raiz < k; ++raiz)
+            {
+                if(visto[raiz])
+                {
+                    continue;
+                }
+                int profundidad = 0;
+                llamadas[profundidad++] = raiz;
+                visto[raiz] = true;
+                this.inicioArbol[raiz] = contador;
+                siguiente[raiz] = this.inicioArcos[raiz];
+                while(profundidad > 0)
+                {
+                    int c = llamadas[profundidad - 1];
+                    if(siguiente[c] < this.inicioArcos[c + 1])
+                    {
+                        int d = this.arcos[siguiente[c]++];
+                        if(!visto[d])
+                        {
+                            visto[d] = true;
+                            this.inicioArbol[d] = contador;
+                            siguiente[d] = this.inicioArcos[d];
+                            llamadas[profundidad++] = d;
+                        }
+                        continue;
+                    }
+                    --profundidad;
+                    this.post[c] = contador;
+                    this.porPost[contador++] = c;
+                }
+            }
+        }
+
+        /**
+         * Calcula los intervalos de un componente juntando su subarbol con
+         * los intervalos de sus sucesores, que ya tienen que estar calculados
+         *
+         * @param c componente
+         */
+        private void calcular(int c)
+        {
+            int total = 1;
+            for(int i = this.inicioArcos[c]; i < this.inicioArcos[c + 1]; ++i)
+            {
+                total += this.intervalos[this.arcos[i]].length / 2;
+            }
+            if(this.desbordado || this.restantes.addAndGet(-total) < 0)
+            {
+                this.desbordado = true;
+                return;
+            }
+            if(total == 1)
+            {
+                this.intervalos[c] = new int[]
+                {
+                    this.inicioArbol[c], this.post[c]
+                };
+                return;
+            }
+            // El inicio va en la parte alta para que ordenar los long ordene
+            // por inicio
+            long[] pares = new long[total];
+            int n = 0;
+            pares[n++] = ((long) this.inicioArbol[c] << 32) | this.post[c];
+            for(int i = this.inicioArcos[c]; i < this.inicioArcos[c + 1]; ++i)
+            {
+                int[] otros = this.intervalos[this.arcos[i]];
+                for(int j = 0; j < otros.length; j += 2)
+                {
+                    pares[n++] = ((long) otros[j] << 32) | otros[j + 1];
+                }
+            }
+            Arrays.sort(pares);
+            int[] juntos = new int[2 * total];
+            int m = 0;
+            for(int i = 0; i < total; ++i)
+            {
+                int inicio = (int) (pares[i] >>> 32);
+                int fin = (int) pares[i];
+                if(m > 0 && inicio <= juntos[m - 1] + 1)
+                {
+                    juntos[m - 1] = Math.max(juntos[m - 1], fin);
+                }
+                else
+                {
+                    juntos[m++] = inicio;
+                    juntos[m++] = fin;
+                }
+            }
+            this.intervalos[c] = m == juntos.length ? juntos : Arrays.copyOf(juntos, m);
+        }
+
+        /**
+         * Indica si un componente alcanza a otro, buscando el postorden del
+         * segundo en los intervalos del primero
+         *
+         * @param a componente de origen
+         * @param b componente a buscar
+         * @return true si a alcanza b
+         */
+        public boolean alcanza(int a, int b)
+        {
+            if(this.intervalos == null)
+            {
+                boolean[] visto = new boolean[this.post.length];
+                this.recorrer(a, visto, new int[this.post.length]);
+                return visto[b];
+            }
+            int[] lista = this.intervalos[a];
+            int p = this.post[b];
+            int bajo = 0;
+            int alto = lista.length / 2 - 1;
+            while(bajo <= alto)
+            {
+                int medio = (bajo + alto) >>> 1;
+                if(lista[2 * medio + 1] < p)
+                {
+                    bajo = medio + 1;
+                }
+                else if(lista[2 * medio] > p)
+                {
+                    alto = medio - 1;
+                }
+                else
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Cuenta las categorias que alcanza un componente, las suyas incluidas
+         *
+         * @param c componente
+         * @return numero de categorias
+         */
+        public int contar(int c)
+        {
+            if(this.intervalos == null)
+            {
+                int[] cola = new int[this.post.length];
+                long total = 0;
+                for(int i = this.recorrer(c, new boolean[this.post.length], cola) - 1; i >= 0; --i)
+                {
+                    total += this.tamano(cola[i]);
+                }
+                return (int) total;
+            }
+            int[] lista = this.intervalos[c];
+            long total = 0;
+            for(int i = 0; i < lista.length; i += 2)
+            {
+                total += this.acumulado[lista[i + 1] + 1] - this.acumulado[lista[i]];
+            }
+            return (int) total;
+        }
+
+        /**
+         * Cuenta las categorias que alcanzan a la vez dos componentes,
+         * recorriendo en paralelo sus intervalos
+         *
+         * @param a primer componente
+         * @param b segundo componente
+         * @return numero de categorias
+         */
+        public int contarInterseccion(int a, int b)
+        {
+            if(this.intervalos == null)
+            {
+                boolean[] vistoA = new boolean[this.post.length];
+                int[] cola = new int[this.post.length];
+                this.recorrer(a, vistoA, cola);
+                long total = 0;
+                for(int i = this.recorrer(b, new boolean[this.post.length], cola) - 1; i >= 0; --i)
+                {
+                    if(vistoA[cola[i]])
+                    {
+                        total += this.tamano(cola[i]);
+                    }
+                }
+                return (int) total;
+            }
+            int[] x = this.intervalos[a];
+            int[] y = this.intervalos[b];
+            long total = 0;
+            int i = 0;
+            int j = 0;
+            while(i < x.length && j < y.length)
+            {
+                int inicio = Math.max(x[i], y[j]);
+                int fin = Math.min(x[i + 1], y[j + 1]);
+                if(inicio <= fin)
+                {
+                    total += this.acumulado[fin + 1] - this.acumulado[inicio];
+                }
+                if(x[i + 1] < y[j + 1])
+                {
+                    i += 2;
+                }
+                else
+                {
+                    j += 2;
+                }
+            }
+            return (int) total;
+        }
+
+        /**
+         * Obtiene los componentes que alcanza un componente, el incluido
+         *
+         * @param c componente
+         * @return componentes alcanzados
+         */
+        public int[] alcanzados(int c)
+        {
+            if(this.intervalos == null)
+            {
+                int[] cola = new int[this.post.length];
+                return Arrays.copyOf(cola, this.recorrer(c, new boolean[this.post.length], cola));
+            }
+            int[] lista = this.intervalos[c];
+            int n = 0;
+            for(int i = 0; i < lista.length; i += 2)
+            {
+                n += lista[i + 1] - lista[i] + 1;
+            }
+            int[] response = new int[n];
+            n = 0;
+            for(int i = 0; i < lista.length; i += 2)
+            {
+                for(int p = lista[i]; p <= lista[i + 1]; ++p)
+                {
+                    response[n++] = this.porPost[p];
+                }
+            }
+            return response;
+        }
+
+        /**
+         * Recorre en anchura los componentes que alcanza un componente, el
+         * incluido, cuando no hay intervalos
+         *
+         * @param c componente de origen
+         * @param visto componentes alcanzados, se marcan aqui
+         * @param cola componentes alcanzados en orden de visita, se rellena
+         * aqui
+         * @return numero de componentes alcanzados
+         */
+        private int recorrer(int c, boolean[] visto, int[] cola)
+        {
+            int n = 0;
+            visto[c] = true;
+            cola[n++] = c;
+            for(int i = 0; i < n; ++i)
+            {
+                int v = cola[i];
+                for(int j = this.inicioArcos[v]; j < this.inicioArcos[v + 1]; ++j)
+                {
+                    int d = this.arcos[j];
+                    if(!visto[d])
+                    {
+                        visto[d] = true;
+                        cola[n++] = d;
+                    }
+                }
+            }
+            return n;
+        }
+
+        /**
+         * Obtiene el numero de categorias de un componente
+         *
+         * @param c componente
+         * @return numero de categorias
+         */
+        private long tamano(int c)
+        {
+            return this.acumulado[this.post[c] + 1] - this.acumulado[this.post[c]];
+        }
+    }
+
+    /**
+     * Calcula en paralelo los intervalos de los componentes de un mismo
+     * nivel, que solo dependen de los de niveles inferiores
+     */
+    @SuppressWarnings("serial")
+    private static class TareaNivel extends RecursiveAction
+    {
+        private final Etiquetado etiquetado;
+        private final int[] componentes;
+        private final int desde;
+        private final int hasta;
+
+        public TareaNivel(Etiquetado etiquetado, int[] componentes, int desde, int hasta)
+        {
+            this.etiquetado = etiquetado;
+            this.componentes = componentes;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if(this.hasta - this.desde > UMBRAL_PARALELO)
+            {
+                int medio = (this.desde + this.hasta) >>> 1;
+                TareaNivel derecha = new TareaNivel(this.etiquetado, this.componentes, medio, this.hasta);
+                derecha.fork();
+                new TareaNivel(this.etiquetado, this.componentes, this.desde, medio).compute();
+                derecha.join();
+                return;
+            }
+            for(int i = this.desde; i < this.hasta; ++i)
+            {
+                this.etiquetado.calcular(this.componentes[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,983 @@
+package domain.grafos;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Almacena todos los arcos de un mismo tipo como vectores de enteros. Cada
+ * nodo origen tiene una fila con los identificadores de sus destinos, en el
+ * orden en que se añadieron, y la fila se encuentra directamente por el
+ * identificador del origen. El origen y el tipo de cada arco quedan implicitos
+ * en la fila y en la tabla, por lo que un arco ocupa un solo entero en lugar de
+ * un objeto Arch. Tambien se guarda el indice inverso, con los origenes que
+ * llegan a cada destino, para que eliminar un nodo solo recorra sus vecinos.
+ *
+ * Al clonar un grafo las dos copias comparten la misma tabla. La primera que
+ * la modifica se queda una tabla nueva que sigue compartiendo las filas, y
+ * cada fila solo se copia la primera vez que se modifica en una de las dos
+ *
+ * @author Cluster 7 sub 3
+ */
+class TablaArcos
+{
+    private static final int[] VACIA = new int[0];
+    private final Arch.typeArch tipo;
+    /**
+     * Destinos de cada origen; null si el nodo no tiene fila en esta tabla
+     */
+    private int[][] filas;
+    /**
+     * Numero de destinos ocupados de cada fila
+     */
+    private int[] grados;
+    /**
+     * Copia ordenada de cada fila, construida bajo demanda para las
+     * intersecciones y descartada cuando la fila cambia
+     */
+    private int[][] ordenados;
+    /**
+     * Tabla hash abierta con los destinos de cada fila grande, para saber en
+     * tiempo constante si un arco ya existe. Se construye cuando la fila
+     * llega a UMBRAL_CONJUNTO destinos y se descarta al quitar arcos
+     */
+    private int[][] conjuntos;
+    private static final int UMBRAL_CONJUNTO = 32;
+    /**
+     * Origenes de los arcos que llegan a cada destino, sin orden
+     */
+    private int[][] entrantes;
+    /**
+     * Numero de origenes ocupados de cada fila de entrantes
+     */
+    private int[] gradosEntrada;
+    /**
+     * Numero total de arcos de la tabla
+     */
+    private int numArcos;
+    /**
+     * Una fila de destinos o de entrantes es propia, y se puede modificar sin
+     * copiarla, si su epoca coincide con la de la tabla. Incrementar la epoca
+     * de la tabla marca todas sus filas como compartidas de una vez
+     */
+    private int epoca;
+    private int[] epocaFilas;
+    private int[] epocaEntrantes;
+    /**
+     * Numero de grafos que usan esta tabla
+     */
+    private int referencias;
+    private static final int LIBRE = -1;
+    /**
+     * Minimo de nodos o arcos que se dan a cada tarea en anadirTodos
+     */
+    private static final int MINIMO_TAREA = 1 << 10;
+
+    /**
+     * Crea una tabla vacia
+     *
+     * @param tipo tipo de los arcos de la tabla
+     * @param capacidad numero de origenes previsto
+     */
+    public TablaArcos(Arch.typeArch tipo, int capacidad)
+    {
+        this.tipo = tipo;
+        this.filas = new int[Math.max(capacidad, 1)][];
+        this.grados = new int[this.filas.length];
+        this.ordenados = new int[this.filas.length][];
+        this.conjuntos = new int[this.filas.length][];
+        this.entrantes = new int[this.filas.length][];
+        this.gradosEntrada = new int[this.filas.length];
+        this.epoca = 1;
+        this.epocaFilas = new int[this.filas.length];
+        this.epocaEntrantes = new int[this.filas.length];
+        this.referencias = 1;
+    }
+
+    /**
+     * Apunta que otro grafo pasa a usar esta tabla
+     */
+    public void compartir()
+    {
+        ++this.referencias;
+    }
+
+    /**
+     * Obtiene una tabla que se puede modificar sin afectar a otros grafos: la
+     * misma si nadie mas la usa, o una copia que comparte las filas si esta
+     * compartida
+     *
+     * @return tabla propia
+     */
+    public TablaArcos paraEscribir()
+    {
+        if(this.referencias == 1)
+        {
+            return this;
+        }
+        --this.referencias;
+        return this.copia();
+    }
+
+    /**
+     * Obtiene la fila de destinos de un origen para modificarla, copiandola
+     * antes si esta compartida con otra tabla
+     *
+     * @param origen nodo origen con fila
+     * @return fila propia
+     */
+    private int[] filaPropia(int origen)
+    {
+        if(this.epocaFilas[origen] != this.epoca)
+        {
+            this.filas[origen] = this.filas[origen].clone();
+            this.epocaFilas[origen] = this.epoca;
+        }
+        return this.filas[origen];
+    }
+
+    /**
+     * Obtiene la fila de entrantes de un destino para modificarla, copiandola
+     * antes si esta compartida con otra tabla
+     *
+     * @param destino nodo destino con entrantes
+     * @return fila propia
+     */
+    private int[] entrantesPropios(int destino)
+    {
+        if(this.epocaEntrantes[destino] != this.epoca)
+        {
+            this.entrantes[destino] = this.entrantes[destino].clone();
+            this.epocaEntrantes[destino] = this.epoca;
+        }
+        return this.entrantes[destino];
+    }
+
+    /**
+     * Obtiene el tipo de los arcos de la tabla
+     *
+     * @return tipo de arco
+     */
+    public Arch.typeArch getTipo()
+    {
+        return this.tipo;
+    }
+
+    /**
+     * Obtiene el limite superior de los origenes, para recorrer todas las filas
+     *
+     * @return uno mas que el mayor origen posible
+     */
+    public int getCapacidad()
+    {
+        return this.filas.length;
+    }
+
+    /**
+     * Indica si un nodo tiene fila en esta tabla
+     *
+     * @param origen nodo origen
+     * @return true si tiene fila, aunque este vacia
+     */
+    public boolean tieneFila(int origen)
+    {
+        return origen >= 0 && origen < this.filas.length && this.filas[origen] != null;
+    }
+
+    /**
+     * Crea la fila vacia de un nodo si aun no la tiene
+     *
+     * @param origen nodo origen
+     */
+    public void crearFila(int origen)
+    {
+        this.asegurarCapacidad(origen + 1);
+        if(this.filas[origen] == null)
+        {
+            this.filas[origen] = VACIA;
+            this.grados[origen] = 0;
+            this.ordenados[origen] = null;
+            this.conjuntos[origen] = null;
+        }
+    }
+
+    /**
+     * Elimina la fila de un nodo con todos sus arcos
+     *
+     * @param origen nodo origen
+     * @return numero de arcos eliminados
+     */
+    public int quitarFila(int origen)
+    {
+        if(!this.tieneFila(origen))
+        {
+            return 0;
+        }
+        int grado = this.grados[origen];
+        int[] fila = this.filas[origen];
+        for(int i = 0; i < grado; ++i)
+        {
+            this.quitarEntrante(fila[i], origen);
+        }
+        this.filas[origen] = null;
+        this.grados[origen] = 0;
+        this.numArcos -= grado;
+        this.ordenados[origen] = null;
+        this.conjuntos[origen] = null;
+        return grado;
+    }
+
+    /**
+     * Obtiene el numero de arcos que salen de un nodo
+     *
+     * @param origen nodo origen
+     * @return numero de destinos, 0 si no tiene fila
+     */
+    public int getGrado(int origen)
+    {
+        if(!this.tieneFila(origen))
+        {
+            return 0;
+        }
+        return this.grados[origen];
+    }
+
+    /**
+     * Obtiene el numero total de arcos de la tabla
+     *
+     * @return numero de arcos
+     */
+    public int getNumArcos()
+    {
+        return this.numArcos;
+    }
+
+    /**
+     * Obtiene el numero de arcos que llegan a un nodo
+     *
+     * @param destino nodo destino
+     * @return numero de origenes
+     */
+    public int getGradoEntrada(int destino)
+    {
+        if(destino < 0 || destino >= this.gradosEntrada.length)
+        {
+            return 0;
+        }
+        return this.gradosEntrada[destino];
+    }
+
+    /**
+     * Obtiene el i-esimo destino de un nodo
+     *
+     * @param origen nodo origen
+     * @param i posicion del destino, menor que el grado
+     * @return destino
+     */
+    public int getDestino(int origen, int i)
+    {
+        return this.filas[origen][i];
+    }
+
+    /**
+     * Indica si existe un arco entre dos nodos
+     *
+     * @param origen nodo origen
+     * @param destino nodo destino
+     * @return true si existe
+     */
+    public boolean contiene(int origen, int destino)
+    {
+        if(!this.tieneFila(origen))
+        {
+            return false;
+        }
+        int[] fila = this.filas[origen];
+        int grado = this.grados[origen];
+        if(grado >= UMBRAL_CONJUNTO)
+        {
+            int[] conjunto = this.conjuntos[origen];
+            if(conjunto == null)
+            {
+                conjunto = nuevoConjunto(fila, grado);
+                this.conjuntos[origen] = conjunto;
+            }
+            return enConjunto(conjunto, destino);
+        }
+        for(int i = 0; i < grado; ++i)
+        {
+            if(fila[i] == destino)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Añade un arco si aun no existe, creando la fila del origen si hace falta
+     *
+     * @param origen nodo origen
+     * @param destino nodo destino
+     * @return true si el arco es nuevo
+     */
+    public boolean anadir(int origen, int destino)
+    {
+        if(this.contiene(origen, destino))
+        {
+            return false;
+        }
+        this.crearFila(origen);
+        int[] fila = this.filas[origen];
+        int grado = this.grados[origen];
+        if(grado == fila.length)
+        {
+            fila = Arrays.copyOf(fila, Math.max(4, grado * 2));
+            this.filas[origen] = fila;
+            this.epocaFilas[origen] = this.epoca;
+        }
+        else
+        {
+            fila = this.filaPropia(origen);
+        }
+        fila[grado] = destino;
+        this.grados[origen] = grado + 1;
+        ++this.numArcos;
+        this.ordenados[origen] = null;
+        this.anadirEntrante(destino, origen);
+        int[] conjunto = this.conjuntos[origen];
+        if(conjunto != null)
+        {
+            if(2 * (grado + 1) > conjunto.length)
+            {
+                this.conjuntos[origen] = nuevoConjunto(fila, grado + 1);
+            }
+            else
+            {
+                insertarEnConjunto(conjunto, destino);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Añade muchos arcos de una vez, con el mismo resultado que llamar a
+     * anadir con cada uno en orden. Los arcos se reparten por origen y cada
+     * fila se completa en una sola pasada; como cada fila y cada lista de
+     * entrantes solo la toca una tarea, se pueden repartir entre varios hilos
+     *
+     * @param origenes origen de cada arco
+     * @param destinos destino de cada arco
+     * @param pool tareas en paralelo, o null para hacerlo en secuencial
+     */
+    public void anadirTodos(final int[] origenes, final int[] destinos, ForkJoinPool pool)
+    {
+        int n = origenes.length;
+        if(n == 0)
+        {
+            return;
+        }
+        int maximo = 0;
+        for(int i = 0; i < n; ++i)
+        {
+            maximo = Math.max(maximo, Math.max(origenes[i], destinos[i]));
+        }
+        this.asegurarCapacidad(maximo + 1);
+        final int[] inicio = new int[maximo + 2];
+        final int[] porOrigen = repartir(origenes, null, inicio, pool);
+        final boolean[] nuevos = new boolean[n];
+        this.numArcos += ConstructorGrafo.enParalelo(pool, maximo + 1, MINIMO_TAREA, new ConstructorGrafo.Tramo()
+        {
+            @Override
+            public long procesar(int desde, int hasta)
+            {
+                long suma = 0;
+                for(int origen = desde; origen < hasta; ++origen)
+                {
+                    if(inicio[origen] < inicio[origen + 1])
+                    {
+                        // El reparto no conserva el orden de llegada
+                        Arrays.sort(porOrigen, inicio[origen], inicio[origen + 1]);
+                        suma += anadirAFila(origen, porOrigen, inicio[origen], inicio[origen + 1], destinos, nuevos);
+                    }
+                }
+                return suma;
+            }
+        });
+        final int[] inicioEntrantes = new int[maximo + 2];
+        final int[] porDestino = repartir(destinos, nuevos, inicioEntrantes, pool);
+        ConstructorGrafo.enParalelo(pool, maximo + 1, MINIMO_TAREA, new ConstructorGrafo.Tramo()
+        {
+            @Override
+            public long procesar(int desde, int hasta)
+            {
+                for(int destino = desde; destino < hasta; ++destino)
+                {
+                    int k = inicioEntrantes[destino + 1] - inicioEntrantes[destino];
+                    if(k == 0)
+                    {
+                        continue;
+                    }
+                    int grado = gradosEntrada[destino];
+                    int[] anteriores = entrantes[destino];
+                    int[] lista = Arrays.copyOf(anteriores == null ? VACIA : anteriores, grado + k);
+                    for(int i = inicioEntrantes[destino]; i < inicioEntrantes[destino + 1]; ++i)
+                    {
+                        lista[grado++] = origenes[porDestino[i]];
+                    }
+                    entrantes[destino] = lista;
+                    gradosEntrada[destino] = grado;
+                    epocaEntrantes[destino] = epoca;
+                }
+                return 0;
+            }
+        });
+    }
+
+    /**
+     * Agrupa las posiciones de un vector por su valor
+     *
+     * @param claves valor de cada posicion
+     * @param filtro posiciones a tener en cuenta, o null para todas
+     * @param inicio se rellena con el inicio del grupo de cada valor
+     * @param pool tareas en paralelo, puede ser null
+     * @return posiciones agrupadas por valor; dentro de cada grupo no tienen
+     * orden
+     */
+    private static int[] repartir(final int[] claves, final boolean[] filtro, int[] inicio, ForkJoinPool pool)
+    {
+        for(int i = 0; i < claves.length; ++i)
+        {
+            if(filtro == null || filtro[i])
+            {
+                ++inicio[claves[i] + 1];
+            }
+        }
+        for(int v = 1; v < inicio.length; ++v)
+        {
+            inicio[v] += inicio[v - 1];
+        }
+        final int[] posiciones = new int[inicio[inicio.length - 1]];
+        final AtomicIntegerArray siguiente = new AtomicIntegerArray(inicio);
+        ConstructorGrafo.enParalelo(pool, claves.length, MINIMO_TAREA, new ConstructorGrafo.Tramo()
+        {
+            @Override
+            public long procesar(int desde, int hasta)
+            {
+                for(int i = desde; i < hasta; ++i)
+                {
+                    if(filtro == null || filtro[i])
+                    {
+                        posiciones[siguiente.getAndIncrement(claves[i])] = i;
+                    }
+                }
+                return 0;
+            }
+        });
+        return posiciones;
+    }
+
+    /**
+     * Añade a la fila de un origen los destinos de unos arcos que aun no
+     * tiene, en el orden dado. Siempre deja una fila nueva, asi que no
+     * modifica filas compartidas con otras tablas
+     *
+     * @param origen nodo origen
+     * @param arcos posiciones de los arcos en destinos
+     * @param desde primera posicion a usar de arcos
+     * @param hasta uno mas que la ultima posicion a usar de arcos
+     * @param destinos destino de cada arco
+     * @param nuevos se marcan los arcos que se han añadido
+     * @return numero de arcos añadidos
+     */
+    private int anadirAFila(int origen, int[] arcos, int desde, int hasta, int[] destinos, boolean[] nuevos)
+    {
+        int[] fila = this.filas[origen] == null ? VACIA : this.filas[origen];
+        int grado = this.grados[origen];
+        int total = grado + hasta - desde;
+        int[] resultado = Arrays.copyOf(fila, total);
+        int[] conjunto = null;
+        if(total >= UMBRAL_CONJUNTO)
+        {
+            conjunto = new int[Integer.highestOneBit(total * 4)];
+            Arrays.fill(conjunto, LIBRE);
+            for(int i = 0; i < grado; ++i)
+            {
+                insertarEnConjunto(conjunto, resultado[i]);
+            }
+        }
+        int g = grado;
+        for(int i = desde; i < hasta; ++i)
+        {
+            int destino = destinos[arcos[i]];
+            boolean repetido = false;
+            if(conjunto != null)
+            {
+                repetido = enConjunto(conjunto, destino);
+            }
+            else
+            {
+                for(int j = 0; j < g && !repetido; ++j)
+                {
+                    repetido = resultado[j] == destino;
+                }
+            }
+            if(!repetido)
+            {
+                resultado[g++] = destino;
+                nuevos[arcos[i]] = true;
+                if(conjunto != null)
+                {
+                    insertarEnConjunto(conjunto, destino);
+                }
+            }
+        }
+        this.filas[origen] = resultado;
+        this.grados[origen] = g;
+        this.epocaFilas[origen] = this.epoca;
+        this.ordenados[origen] = null;
+        this.conjuntos[origen] = g >= UMBRAL_CONJUNTO ? conjunto : null;
+        return g - grado;
+    }
+
+    /**
+     * Elimina los arcos entre dos nodos conservando el orden del resto
+     *
+     * @param origen nodo origen
+     * @param destino nodo destino
+     * @return numero de arcos eliminados
+     */
+    public int quitar(int origen, int destino)
+    {
+        int quitados = this.quitarDeFila(origen, destino);
+        for(int i = 0; i < quitados; ++i)
+        {
+            this.quitarEntrante(destino, origen);
+        }
+        return quitados;
+    }
+
+    /**
+     * Elimina un destino de la fila de un origen sin tocar el indice inverso
+     *
+     * @param origen nodo origen
+     * @param destino nodo destino
+     * @return numero de arcos eliminados
+     */
+    private int quitarDeFila(int origen, int destino)
+    {
+        if(!this.tieneFila(origen))
+        {
+            return 0;
+        }
+        int[] fila = this.filas[origen];
+        int grado = this.grados[origen];
+        int j = 0;
+        while(j < grado && fila[j] != destino)
+        {
+            ++j;
+        }
+        if(j == grado)
+        {
+            return 0;
+        }
+        fila = this.filaPropia(origen);
+        for(int i = j; i < grado; ++i)
+        {
+            if(fila[i] != destino)
+            {
+                fila[j++] = fila[i];
+            }
+        }
+        if(j != grado)
+        {
+            this.grados[origen] = j;
+            this.numArcos -= grado - j;
+            this.ordenados[origen] = null;
+            this.conjuntos[origen] = null;
+        }
+        return grado - j;
+    }
+
+    /**
+     * Crea la tabla hash de los destinos de una fila, con al menos el doble de
+     * posiciones que destinos
+     *
+     * @param fila destinos
+     * @param grado numero de destinos ocupados
+     * @return tabla hash con los destinos
+     */
+    private static int[] nuevoConjunto(int[] fila, int grado)
+    {
+        int[] conjunto = new int[Integer.highestOneBit(Math.max(grado, 1) * 4)];
+        Arrays.fill(conjunto, LIBRE);
+        for(int i = 0; i < grado; ++i)
+        {
+            insertarEnConjunto(conjunto, fila[i]);
+        }
+        return conjunto;
+    }
+
+    /**
+     * Posicion inicial de un valor en una tabla hash de tamaño potencia de 2
+     *
+     * @param conjunto tabla hash
+     * @param valor identificador de nodo
+     * @return posicion
+     */
+    private static int posicion(int[] conjunto, int valor)
+    {
+        return (valor * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(conjunto.length)) & (conjunto.length - 1);
+    }
+
+    /**
+     * Busca un valor en la tabla hash con sondeo lineal
+     *
+     * @param conjunto tabla hash
+     * @param valor identificador de nodo
+     * @return true si esta
+     */
+    private static boolean enConjunto(int[] conjunto, int valor)
+    {
+        int mascara = conjunto.length - 1;
+        for(int i = posicion(conjunto, valor); conjunto[i] != LIBRE; i = (i + 1) & mascara)
+        {
+            if(conjunto[i] == valor)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Inserta un valor que no esta en la tabla hash
+     *
+     * @param conjunto tabla hash con posiciones libres
+     * @param valor identificador de nodo
+     */
+    private static void insertarEnConjunto(int[] conjunto, int valor)
+    {
+        int mascara = conjunto.length - 1;
+        int i = posicion(conjunto, valor);
+        while(conjunto[i] != LIBRE)
+        {
+            i = (i + 1) & mascara;
+        }
+        conjunto[i] = valor;
+    }
+
+    /**
+     * Elimina todos los arcos que llegan a un nodo
+     *
+     * @param destino nodo destino
+     * @return numero de arcos eliminados
+     */
+    public int quitarDestino(int destino)
+    {
+        int n = this.getGradoEntrada(destino);
+        if(n == 0)
+        {
+            return 0;
+        }
+        int suma = 0;
+        int[] origenes = this.entrantes[destino];
+        for(int i = 0; i < n; ++i)
+        {
+            suma += this.quitarDeFila(origenes[i], destino);
+        }
+        this.entrantes[destino] = null;
+        this.gradosEntrada[destino] = 0;
+        return suma;
+    }
+
+    /**
+     * Apunta en el indice inverso que un origen llega a un destino
+     *
+     * @param destino nodo destino
+     * @param origen nodo origen
+     */
+    private void anadirEntrante(int destino, int origen)
+    {
+        this.asegurarCapacidad(destino + 1);
+        int[] origenes = this.entrantes[destino];
+        int n = this.gradosEntrada[destino];
+        if(origenes == null || n == origenes.length)
+        {
+            origenes = origenes == null ? new int[4] : Arrays.copyOf(origenes, Math.max(4, n * 2));
+            this.entrantes[destino] = origenes;
+            this.epocaEntrantes[destino] = this.epoca;
+        }
+        else
+        {
+            origenes = this.entrantesPropios(destino);
+        }
+        origenes[n] = origen;
+        this.gradosEntrada[destino] = n + 1;
+    }
+
+    /**
+     * Borra una aparicion de un origen del indice inverso de un destino. El
+     * orden de los entrantes no importa, asi que se rellena el hueco con el
+     * ultimo
+     *
+     * @param destino nodo destino
+     * @param origen nodo origen
+     */
+    private void quitarEntrante(int destino, int origen)
+    {
+        int n = this.gradosEntrada[destino];
+        if(n == 0)
+        {
+            return;
+        }
+        int[] origenes = this.entrantesPropios(destino);
+        for(int i = 0; i < n; ++i)
+        {
+            if(origenes[i] == origen)
+            {
+                origenes[i] = origenes[n - 1];
+                this.gradosEntrada[destino] = n - 1;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Obtiene los destinos de un nodo ordenados de menor a mayor. El vector
+     * devuelto es compartido y no debe modificarse
+     *
+     * @param origen nodo origen
+     * @return destinos ordenados o null si el nodo no tiene fila
+     */
+    public int[] getOrdenados(int origen)
+    {
+        if(!this.tieneFila(origen))
+        {
+            return null;
+        }
+        int[] destinos = this.ordenados[origen];
+        if(destinos == null)
+        {
+            destinos = Arrays.copyOf(this.filas[origen], this.grados[origen]);
+            Arrays.sort(destinos);
+            this.ordenados[origen] = destinos;
+        }
+        return destinos;
+    }
+
+    /**
+     * Libera el espacio sobrante de las filas, pensado para despues de una
+     * carga completa
+     */
+    public void ajustar()
+    {
+        for(int origen = 0; origen < this.filas.length; ++origen)
+        {
+            int[] fila = this.filas[origen];
+            if(fila != null && fila.length != this.grados[origen])
+            {
+                this.filas[origen] = this.grados[origen] == 0 ? VACIA : Arrays.copyOf(fila, this.grados[origen]);
+                this.epocaFilas[origen] = this.epoca;
+            }
+            int[] origenes = this.entrantes[origen];
+            if(origenes != null && origenes.length != this.gradosEntrada[origen])
+            {
+                this.entrantes[origen] = this.gradosEntrada[origen] == 0 ? null : Arrays.copyOf(origenes, this.gradosEntrada[origen]);
+                this.epocaEntrantes[origen] = this.epoca;
+            }
+        }
+    }
+
+    /**
+     * Obtiene los arcos de un nodo como una lista de solo lectura. Los objetos
+     * Arch se crean al consultarlos y la lista refleja el estado actual de la
+     * tabla
+     *
+     * @param origen nodo origen
+     * @return lista de arcos
+     */
+    public List<Arch> getVista(final int origen)
+    {
+        return new AbstractList<Arch>()
+        {
+            @Override
+            public Arch get(int i)
+            {
+                if(i < 0 || i >= size())
+                {
+                    throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size());
+                }
+                return new Arch(origen, filas[origen][i], tipo);
+            }
+
+            @Override
+            public int size()
+            {
+                return getGrado(origen);
+            }
+        };
+    }
+
+    /**
+     * Construye una estructura de listas con el contenido de la tabla
+     *
+     * @return copia de los arcos agrupados por origen
+     */
+    public HashMap<Integer, ArrayList<Arch>> toMap()
+    {
+        HashMap<Integer, ArrayList<Arch>> response = new HashMap<>();
+        for(int origen = 0; origen < this.filas.length; ++origen)
+        {
+            if(this.filas[origen] != null)
+            {
+                response.put(origen, new ArrayList<>(this.getVista(origen)));
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Construye una tabla a partir de una estructura de listas
+     *
+     * @param tipo tipo de los arcos
+     * @param edges arcos agrupados por origen
+     * @return tabla con los mismos arcos
+     */
+    public static TablaArcos fromMap(Arch.typeArch tipo, HashMap<Integer, ArrayList<Arch>> edges)
+    {
+        TablaArcos tabla = new TablaArcos(tipo, edges.size());
+        for(Entry<Integer, ArrayList<Arch>> entry : edges.entrySet())
+        {
+            tabla.crearFila(entry.getKey());
+            for(Arch arc : entry.getValue())
+            {
+                tabla.anadir(entry.getKey(), arc.getDestiny());
+            }
+        }
+        return tabla;
+    }
+
+    /**
+     * Crea una tabla nueva que comparte las filas con esta. A partir de ahora
+     * ninguna de las dos modifica una fila compartida sin copiarla antes
+     *
+     * @return tabla nueva con los mismos arcos
+     */
+    private TablaArcos copia()
+    {
+        int n = this.filas.length;
+        TablaArcos obj = new TablaArcos(this.tipo, 1);
+        obj.filas = this.filas.clone();
+        obj.grados = this.grados.clone();
+        obj.ordenados = this.ordenados.clone();
+        obj.conjuntos = new int[n][];
+        obj.entrantes = this.entrantes.clone();
+        obj.gradosEntrada = this.gradosEntrada.clone();
+        obj.numArcos = this.numArcos;
+        obj.epocaFilas = new int[n];
+        obj.epocaEntrantes = new int[n];
+        ++this.epoca;
+        return obj;
+    }
+
+    /**
+     * Amplia los vectores para que quepan nodos hasta n - 1, tanto de origen
+     * como de destino
+     *
+     * @param n numero de nodos necesario
+     */
+    private void asegurarCapacidad(int n)
+    {
+        if(n > this.filas.length)
+        {
+            int capacidad = Math.max(n, this.filas.length * 2);
+            this.filas = Arrays.copyOf(this.filas, capacidad);
+            this.grados = Arrays.copyOf(this.grados, capacidad);
+            this.ordenados = Arrays.copyOf(this.ordenados, capacidad);
+            this.conjuntos = Arrays.copyOf(this.conjuntos, capacidad);
+            this.entrantes = Arrays.copyOf(this.entrantes, capacidad);
+            this.gradosEntrada = Arrays.copyOf(this.gradosEntrada, capacidad);
+            this.epocaFilas = Arrays.copyOf(this.epocaFilas, capacidad);
+            this.epocaEntrantes = Arrays.copyOf(this.epocaEntrantes, capacidad);
+        }
+    }
+
+    /**
+     * Genera un Hash a partir de los arcos de la tabla
+     *
+     * @return
+     */
+    @Override
+    public int hashCode()
+    {
+        int hash = 7;
+        hash = 67 * hash + this.tipo.hashCode();
+        for(int origen = 0; origen < this.filas.length; ++origen)
+        {
+            if(this.filas[origen] != null)
+            {
+                hash = 67 * hash + origen;
+                for(int i = 0; i < this.grados[origen]; ++i)
+                {
+                    hash = 67 * hash + this.filas[origen][i];
+                }
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Dos tablas son iguales si tienen el mismo tipo y las mismas filas con los
+     * destinos en el mismo orden
+     *
+     * @param obj tabla con la que comparar
+     * @return
+     */
+    @Override
+    public boolean equals(Object obj)
+    {
+        if(obj == null)
+        {
+            return false;
+        }
+        if(getClass() != obj.getClass())
+        {
+            return false;
+        }
+        final TablaArcos other = (TablaArcos) obj;
+        if(this.tipo != other.tipo)
+        {
+            return false;
+        }
+        int n = Math.max(this.filas.length, other.filas.length);
+        for(int origen = 0; origen < n; ++origen)
+        {
+            if(this.tieneFila(origen) != other.tieneFila(origen))
+            {
+                return false;
+            }
+            if(this.tieneFila(origen))
+            {
+                int grado = this.grados[origen];
+                if(grado != other.grados[origen])
+                {
+                    return false;
+                }
+                for(int i = 0; i < grado; ++i)
+                {
+                    if(this.filas[origen][i] != other.filas[origen][i])
+                    {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+}
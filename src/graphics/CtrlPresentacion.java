@@ -245,6 +245,16 @@ public class CtrlPresentacion
         return this.ctrlDominio.isGraphEmpty();
     }
 
+    /**
+     * Obtiene el numero de enlaces del grafo
+     *
+     * @return numero de enlaces
+     */
+    public int getNumEnlaces()
+    {
+        return this.ctrlDominio.getNumEnlaces();
+    }
+
     /**
      * Devuelve el numero de la pagina.
      * 
@@ -495,7 +505,16 @@ public class CtrlPresentacion
         this.ctrlAlgoritmo.setP(p);
         if(this.ctrlAlgoritmo.areCatSelections() && this.ctrlAlgoritmo.areFilters())
         {
-            this.ctrlDominio.setGeneratedCto(this.ctrlAlgoritmo.ejecutar(this.algorithmGraph(), this.ctrlDominio.getGrafo()));
+            try
+            {
+                this.ctrlDominio.setGeneratedCto(this.ctrlAlgoritmo.ejecutar(this.algorithmGraph(), this.ctrlDominio.getGrafo()));
+            }
+            catch(IllegalStateException e)
+            {
+                // El algoritmo ha superado sus limites (p.ej. demasiadas cliques)
+                sincronizacionVistaPrincipal_a_Error(e.getMessage());
+                return;
+            }
             this.vistaPrincipal.actualizarSet(false);
             this.vistaPrincipal.activarTab(3); //CONJ
             this.vistaPrincipal.activarTab(4); //COMP
@@ -812,7 +831,14 @@ public class CtrlPresentacion
      */
     public void obtainCjto(int p)
     {
-        this.ctrlDominio.setGeneratedCto(this.ctrlAlgoritmo.obtain(p, this.ctrlDominio.getGrafo()));
+        try
+        {
+            this.ctrlDominio.setGeneratedCto(this.ctrlAlgoritmo.obtain(p, this.ctrlDominio.getGrafo()));
+        }
+        catch(IllegalStateException e)
+        {
+            sincronizacionVistaPrincipal_a_Error(e.getMessage());
+        }
         //this.vistaPrincipal.actualizarSet(false);
     }
 
@@ -843,4 +869,15 @@ public class CtrlPresentacion
     {
         return this.ctrlAlgoritmo.timeAproximation();
     }
+
+    /**
+     * Devuelve el factor de cohesion con mejor modularidad del ultimo
+     * algoritmo.
+     * 
+     * @return factor de cohesion, o -1 si el algoritmo no lo proporciona
+     */
+    public int getMejorP()
+    {
+        return this.ctrlAlgoritmo.getBestP();
+    }
 }
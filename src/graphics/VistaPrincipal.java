@@ -167,7 +167,7 @@ public class VistaPrincipal extends javax.swing.JFrame
         model.clear();
         model.addElement("ENLACES:");
         for(String elem : lista) model.addElement(elem);        
-        this.labelInfoGraf.setText("Categorias: "+this.catPosToId.size()+" | "+"Páginas: "+this.pagPosToId.size()+" | "+"Enlaces: "+ lista.size());
+        this.labelInfoGraf.setText("Categorias: "+this.catPosToId.size()+" | "+"Páginas: "+this.pagPosToId.size()+" | "+"Enlaces: "+ this.iCtrlPresentacion.getNumEnlaces());
     }
     
     /**
@@ -2267,6 +2267,11 @@ public class VistaPrincipal extends javax.swing.JFrame
                     break;
             }
             this.txtListComp.append("Nivel de cohesión: "+infoC1[2]+"\n");
+            int mejorP = this.iCtrlPresentacion.getMejorP();
+            if(infoC1[1] == 2 && mejorP >= 0)
+            {
+                this.txtListComp.append("Nivel de cohesión con mejor modularidad: "+mejorP+"\n");
+            }
             this.txtListComp.append("Prioridad filtro nombre similar: "+infoC1[3]+"\n");
             this.txtListComp.append("Prioridad filtro categorias en común: "+infoC1[4]+"\n");
             this.txtListComp.append("Prioridad filtro páginas en común: "+infoC1[5]+"\n");
@@ -2906,7 +2911,7 @@ public class VistaPrincipal extends javax.swing.JFrame
         }
         CardLayout cl = (CardLayout)(this.panel.getLayout());
         cl.show(this.panel, "card2");
-        this.labelInfoGraf.setText("Categorias: "+this.catPosToId.size()+" | "+"Páginas: "+this.pagPosToId.size()+" | "+"Enlaces: "+ this.listLinks.getModel().getSize());
+        this.labelInfoGraf.setText("Categorias: "+this.catPosToId.size()+" | "+"Páginas: "+this.pagPosToId.size()+" | "+"Enlaces: "+ this.iCtrlPresentacion.getNumEnlaces());
     }//GEN-LAST:event_btnRmvPagFromGraphActionPerformed
 
     private void btnAddPagToGraphActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_btnAddPagToGraphActionPerformed
@@ -2923,7 +2928,7 @@ public class VistaPrincipal extends javax.swing.JFrame
         }
         CardLayout cl = (CardLayout)(this.panel.getLayout());
         cl.show(this.panel, "card2");
-        this.labelInfoGraf.setText("Categorias: "+this.catPosToId.size()+" | "+"Páginas: "+this.pagPosToId.size()+" | "+"Enlaces: "+ this.listLinks.getModel().getSize());
+        this.labelInfoGraf.setText("Categorias: "+this.catPosToId.size()+" | "+"Páginas: "+this.pagPosToId.size()+" | "+"Enlaces: "+ this.iCtrlPresentacion.getNumEnlaces());
 
     }//GEN-LAST:event_btnAddPagToGraphActionPerformed
 
@@ -2933,7 +2938,7 @@ public class VistaPrincipal extends javax.swing.JFrame
         this.modEnlaces = false;
         CardLayout cl = (CardLayout)(panel.getLayout());
         cl.show(panel, "card3");
-        this.labelInfoGraf.setText("Categorias: "+this.catPosToId.size()+" | "+"Páginas: "+this.pagPosToId.size()+" | "+"Enlaces: "+ this.listLinks.getModel().getSize());
+        this.labelInfoGraf.setText("Categorias: "+this.catPosToId.size()+" | "+"Páginas: "+this.pagPosToId.size()+" | "+"Enlaces: "+ this.iCtrlPresentacion.getNumEnlaces());
     }//GEN-LAST:event_btnAddLinkToGraphActionPerformed
 
     private void btnRmvCatFromGraphActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_btnRmvCatFromGraphActionPerformed
@@ -2951,7 +2956,7 @@ public class VistaPrincipal extends javax.swing.JFrame
         }
         CardLayout cl = (CardLayout)(this.panel.getLayout());
         cl.show(this.panel, "card1");
-        this.labelInfoGraf.setText("Categorias: "+this.catPosToId.size()+" | "+"Páginas: "+this.pagPosToId.size()+" | "+"Enlaces: "+ this.listLinks.getModel().getSize());
+        this.labelInfoGraf.setText("Categorias: "+this.catPosToId.size()+" | "+"Páginas: "+this.pagPosToId.size()+" | "+"Enlaces: "+ this.iCtrlPresentacion.getNumEnlaces());
 
     }//GEN-LAST:event_btnRmvCatFromGraphActionPerformed
 
@@ -2970,7 +2975,7 @@ public class VistaPrincipal extends javax.swing.JFrame
         }
         CardLayout cl = (CardLayout)(this.panel.getLayout());
         cl.show(this.panel, "card1");
-        this.labelInfoGraf.setText("Categorias: "+this.catPosToId.size()+" | "+"Páginas: "+this.pagPosToId.size()+" | "+"Enlaces: "+ this.listLinks.getModel().getSize());
+        this.labelInfoGraf.setText("Categorias: "+this.catPosToId.size()+" | "+"Páginas: "+this.pagPosToId.size()+" | "+"Enlaces: "+ this.iCtrlPresentacion.getNumEnlaces());
     }//GEN-LAST:event_btnAddCatToGraphActionPerformed
 
     private void txtNodo1EnlaceFocusLost(java.awt.event.FocusEvent evt) {//GEN-FIRST:event_txtNodo1EnlaceFocusLost
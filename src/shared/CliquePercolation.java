@@ -1,6 +1,18 @@
 package shared;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  *
@@ -8,15 +20,62 @@ import java.util.*;
  */
 public class CliquePercolation extends Algorithm
 {
-    private int W;
+    private double W;
     private int nodes;
     private ArrayList<Integer> vertexs = new ArrayList<>();
-    private ArrayList< ArrayList<Integer>> graf = new ArrayList<>();
-    private ArrayList< ArrayList<Integer>> cliques = new ArrayList<>();
-    private ArrayList< ArrayList<Integer>> mat1 = new ArrayList<>();
+    private int[][] graf;
+    // Entorns mes grans es recorren amb vectors ordenats en lloc de bitsets
+    private static final int MIDA_MAXIMA_BITSET = 4096;
+    private boolean parallel = false;
+    // Nombre de vertexs arrel a partir del qual una tasca es divideix
+    private static final int LLINDAR_PARALLEL = 64;
+    private Arena cliques = new Arena();
+    // Mida de cada clique, tambe quan les cliques s'han bolcat a disc
+    private int[] mides = new int[0];
+    private int num_cliques;
+    // Limits: nombre maxim de cliques i memoria que poden ocupar (una part
+    // del heap) abans de bolcar-les a un fitxer temporal o aturar el calcul.
+    // La resta d'estructures (index invers, parelles, nivells de k i estats
+    // guardats) tambe compten dins la mateixa part del heap
+    private long max_cliques = Integer.MAX_VALUE;
+    private boolean bolcar = false;
+    private static final int FRACCIO_MEMORIA = 4;
+    private AtomicLong cliques_trobades = new AtomicLong();
+    private AtomicLong vertexs_trobats = new AtomicLong();
+    private long memoria_lliure;
+    // Bytes de l'estat que es substitueix mentre es calcula un W nou, i de
+    // les estructures de treball del pas actual
+    private long memoria_anterior;
+    private long memoria_temporal;
+    // Fitxer amb les cliques bolcades: per cada clique, la mida i els vertexs
+    // ordenats, com a enters binaris
+    private File fitxer_cliques;
+    private volatile DataOutputStream sortida_cliques;
+    // Parelles de cliques (a < b) que comparteixen algun vertex i quants
+    private int[] parella_a = new int[0];
+    private int[] parella_b = new int[0];
+    private int[] solapament = new int[0];
+    private int num_parelles;
     private int K;
-    private ArrayList< ArrayList<Boolean>> mat2 = new ArrayList<>();
     private ArrayList< ArrayList<Integer>> conjunts = new ArrayList<>();
+    // Mode multi-k: etiquetes[k][c] es la comunitat de la clique c per k
+    private boolean multi_k = false;
+    private int[][] etiquetes;
+    private int k_conjunts;
+    // Arestes (sense bucles) ordenades per pes decreixent: el graf amb
+    // llindar W son les primeres arestes_amb_pes(W), sense reconstruir res
+    private int[] aresta_a = new int[0];
+    private int[] aresta_b = new int[0];
+    private double[] aresta_pes = new double[0];
+    private int num_arestes;
+    // Primer i tercer quartil exactes dels pesos, calculats en llegir el graf
+    private double quartil_1;
+    private double quartil_3;
+    // Cliques, solapaments i nivells de k ja calculats per altres W, segons
+    // el nombre d'arestes que deixa cada W: dos W amb les mateixes arestes
+    // tenen la mateixa estructura
+    private LinkedHashMap<Integer, Estat> estats = new LinkedHashMap<>();
+    private static final int MAX_ESTATS = 8;
 
     /**
      * Post: Se crea un objeto Algorithm.CliquePercolation()
@@ -26,82 +85,145 @@ public class CliquePercolation extends Algorithm
         // Constructora
     }
 
-    private void determinar_w(Graph<Integer, Double> g)
+    // Llegeix les arestes del graf un sol cop i les deixa ordenades per pes
+    private void llegir_arestes(Graph<Integer, Double> g)
     {
-        //System.out.println(super.p);
-        vertexs = g.getVertexs();
+        vertexs = new ArrayList<>(g.getVertexs());
         nodes = vertexs.size();
-        double pes_min = 999999;
-        double pes_max = 0;
-        double suma_pes = 0;
-        int arestes_total = 0;
-        ArrayList<Boolean> vertex_vist = new ArrayList<>(Collections.nCopies(nodes, Boolean.FALSE));
+        HashMap<Integer, Integer> index = new HashMap<>();
+        for(int i = 0; i < nodes; ++i)
+        {
+            index.put(vertexs.get(i), i);
+        }
+        int[] a = new int[16];
+        int[] b = new int[16];
+        double[] pesos = new double[16];
+        num_arestes = 0;
         for(int i = 0; i < nodes; ++i)
         {
-            vertex_vist.set(i, Boolean.TRUE);
-            ArrayList<Integer> veins = new ArrayList<>();
-            veins = g.getNeighbors(vertexs.get(i));
-            for(Integer vei : veins)
+            for(Integer vei : g.getNeighbors(vertexs.get(i)))
             {
-                if(!vertex_vist.get(vertexs.indexOf(vei)))
+                int j = index.get(vei);
+                if(j > i)
                 {
-                    double pes = g.getEdge(vertexs.get(i), vei);
-                    suma_pes = suma_pes + pes;
-                    arestes_total++;
-                    if(pes < pes_min)
+                    double w = g.getEdge(vertexs.get(i), vei);
+                    if(num_arestes == a.length)
                     {
-                        pes_min = pes;
-                    }
-                    if(pes > pes_max)
-                    {
-                        pes_max = pes;
+                        a = Arrays.copyOf(a, 2 * num_arestes);
+                        b = Arrays.copyOf(b, 2 * num_arestes);
+                        pesos = Arrays.copyOf(pesos, 2 * num_arestes);
                     }
+                    a[num_arestes] = i;
+                    b[num_arestes] = j;
+                    pesos[num_arestes] = w;
+                    num_arestes++;
                 }
             }
         }
-        double mitja_pes = suma_pes / arestes_total;
-        //System.out.println("Pes min: " + (int)pes_min);
-        //System.out.println("Pes max: " + (int)pes_max);
-        //System.out.println("Suma pes: " + (int)suma_pes);
-        //System.out.println("Arestes total: " + arestes_total);
-        //System.out.println("Media de pesos: " + mitja_pes);
-        //System.out.println("P: " + super.p);
-        int Q1 = ((int) pes_min + (int) mitja_pes) / 2;   // Primer cuartil
-        //System.out.println("W min: " + Q1);
-        int Q3 = ((int) pes_max + (int) mitja_pes) / 2;   // Tercer cuartil
-        //System.out.println("W Max: " + Q3);
+        final double[] pes_llegit = pesos;
+        Integer[] ordre = new Integer[num_arestes];
+        for(int e = 0; e < num_arestes; e++)
+        {
+            ordre[e] = e;
+        }
+        Arrays.sort(ordre, new Comparator<Integer>()
+        {
+            @Override
+            public int compare(Integer x, Integer y)
+            {
+                return Double.compare(pes_llegit[y], pes_llegit[x]);
+            }
+        });
+        aresta_a = new int[num_arestes];
+        aresta_b = new int[num_arestes];
+        aresta_pes = new double[num_arestes];
+        for(int e = 0; e < num_arestes; e++)
+        {
+            aresta_a[e] = a[ordre[e]];
+            aresta_b[e] = b[ordre[e]];
+            aresta_pes[e] = pes_llegit[ordre[e]];
+        }
+        quartil_1 = percentil(0.25);
+        quartil_3 = percentil(0.75);
+    }
+
+    // Percentil exacte dels pesos, interpolant entre els dos pesos mes propers
+    private double percentil(double q)
+    {
+        if(num_arestes == 0)
+        {
+            return 0;
+        }
+        // aresta_pes esta en ordre decreixent
+        double posicio = q * (num_arestes - 1);
+        int i = (int) posicio;
+        double baix = aresta_pes[num_arestes - 1 - i];
+        if(i + 1 == num_arestes)
+        {
+            return baix;
+        }
+        double alt = aresta_pes[num_arestes - 2 - i];
+        return baix + (alt - baix) * (posicio - i);
+    }
+
+    private void determinar_w()
+    {
+        //System.out.println(super.p);
+        //System.out.println("Arestes total: " + num_arestes);
+        //System.out.println("W min: " + quartil_1);
+        //System.out.println("W Max: " + quartil_3);
         double factor = super.p / 100.;
         //System.out.println("\nfactor: " +factor);
-        //W = (int) (mitja_pes*factor + pes_min*(1-factor));
-        W = (int) (Q3 * factor + Q1 * (1 - factor));
+        // Sense arrodonir: els pesos poden tenir decimals
+        W = quartil_3 * factor + quartil_1 * (1 - factor);
         //System.out.println("W: " + W);
     }
 
-    private void transform_graph(Graph<Integer, Double> g)
+    // Nombre d'arestes amb pes >= w, que son les primeres de la llista
+    private int arestes_amb_pes(double w)
     {
-        determinar_w(g);
-        //Copiar grafo a arraylist
-        // Matrix initialization like Mi (nodes);
-        for(int i = 0; i < nodes; ++i)
-        {
-            ArrayList<Integer> init = new ArrayList<>();
-            graf.add(init);
-        }
-        ArrayList<Boolean> vertex_vist = new ArrayList<>(Collections.nCopies(nodes, Boolean.FALSE));
-        for(int i = 0; i < nodes; ++i)
+        int esq = 0;
+        int dre = num_arestes;
+        while(esq < dre)
         {
-            vertex_vist.set(i, Boolean.TRUE);
-            ArrayList<Integer> veins = new ArrayList<>();
-            veins = g.getNeighbors(vertexs.get(i));
-            for(Integer vei : veins)
+            int mig = (esq + dre) >>> 1;
+            if(aresta_pes[mig] >= w)
             {
-                if(!vertex_vist.get(vertexs.indexOf(vei)) && g.getEdge(vertexs.get(i), vei) >= W)
-                {
-                    graf.get(i).add(vertexs.indexOf(vei));
-                    graf.get(vertexs.indexOf(vei)).add(i);
-                }
+                esq = mig + 1;
+            }
+            else
+            {
+                dre = mig;
             }
         }
+        return esq;
+    }
+
+    // Vectors d'adjacencia ordenats del graf amb les arestes de pes >= W
+    private void transform_graph()
+    {
+        int m = arestes_amb_pes(W);
+        int[] grau = new int[nodes];
+        for(int e = 0; e < m; e++)
+        {
+            grau[aresta_a[e]]++;
+            grau[aresta_b[e]]++;
+        }
+        graf = new int[nodes][];
+        for(int i = 0; i < nodes; i++)
+        {
+            graf[i] = new int[grau[i]];
+            grau[i] = 0;
+        }
+        for(int e = 0; e < m; e++)
+        {
+            graf[aresta_a[e]][grau[aresta_a[e]]++] = aresta_b[e];
+            graf[aresta_b[e]][grau[aresta_b[e]]++] = aresta_a[e];
+        }
+        for(int i = 0; i < nodes; i++)
+        {
+            Arrays.sort(graf[i]);
+        }
     }
 
     /*
@@ -115,184 +237,666 @@ public class CliquePercolation extends Algorithm
      System.out.print("\n");
      }
      */
-    private int calcula_grau_maxim()
+    // Ordre de degeneracio: es treu sempre el vertex de grau minim que queda
+    private int[] ordre_degeneracio(int[][] adj)
     {
-        int maxim = 0;
+        int grau_maxim = 0;
+        int[] grau = new int[nodes];
         for(int i = 0; i < nodes; i++)
         {
-            if(graf.get(i).size() > maxim)
+            grau[i] = adj[i].length;
+            if(grau[i] > grau_maxim)
             {
-                maxim = graf.get(i).size();
+                grau_maxim = grau[i];
             }
         }
-        return maxim;
+        // Vertexs ordenats per grau (bucket sort) i posicio de cada un
+        int[] inici = new int[grau_maxim + 2];
+        for(int i = 0; i < nodes; i++)
+        {
+            inici[grau[i] + 1]++;
+        }
+        for(int d = 0; d <= grau_maxim; d++)
+        {
+            inici[d + 1] += inici[d];
+        }
+        int[] ordre = new int[nodes];
+        int[] posicio = new int[nodes];
+        int[] seguent = Arrays.copyOf(inici, grau_maxim + 1);
+        for(int i = 0; i < nodes; i++)
+        {
+            posicio[i] = seguent[grau[i]]++;
+            ordre[posicio[i]] = i;
+        }
+        for(int i = 0; i < nodes; i++)
+        {
+            int v = ordre[i];
+            for(int u : adj[v])
+            {
+                if(grau[u] > grau[v])
+                {
+                    // Movem u al principi del seu bucket i el passem al bucket anterior
+                    int du = grau[u];
+                    int pu = posicio[u];
+                    int pw = inici[du];
+                    int w = ordre[pw];
+                    if(u != w)
+                    {
+                        ordre[pu] = w;
+                        posicio[w] = pu;
+                        ordre[pw] = u;
+                        posicio[u] = pw;
+                    }
+                    inici[du]++;
+                    grau[u]--;
+                }
+            }
+        }
+        return ordre;
     }
 
-    private Boolean contingut(ArrayList<Integer> a, ArrayList<Integer> b)
+    private int[] interseccio(int[] a, int mida_a, int[] b)
     {
+        int[] res = new int[Math.min(mida_a, b.length)];
+        int n = 0;
+        int i = 0;
         int j = 0;
-        for(int i = 0; i < a.size(); i++)
+        while(i < mida_a && j < b.length)
         {
-            while(j < b.size() && a.get(i) > b.get(j))
+            if(a[i] < b[j])
+            {
+                i++;
+            }
+            else if(a[i] > b[j])
             {
                 j++;
             }
-            if(j == b.size() || b.get(j) > a.get(i))
+            else
             {
-                return false;
+                res[n++] = a[i];
+                i++;
+                j++;
             }
         }
-        return true;
+        return Arrays.copyOf(res, n);
     }
 
-    private ArrayList<Integer> copia_arraylist(ArrayList<Integer> v)
+    private int mida_interseccio(int[] a, int mida_a, int[] b)
     {
-        ArrayList<Integer> copia = new ArrayList<>();
-        for(int pos : v)
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while(i < mida_a && j < b.length)
         {
-            copia.add(pos);
+            if(a[i] < b[j])
+            {
+                i++;
+            }
+            else if(a[i] > b[j])
+            {
+                j++;
+            }
+            else
+            {
+                n++;
+                i++;
+                j++;
+            }
         }
-        return copia;
+        return n;
     }
 
-    private Boolean contingut_en_alguna_clique(ArrayList<Integer> v)
+    // Bron-Kerbosch amb pivot de Tomita: P i X son vectors ordenats
+    private void bron_kerbosch(int[][] adj, int[] actual, int mida, int[] P, int[] X, Arena sortida)
     {
-        ArrayList<Integer> vcopia = new ArrayList<>();
-        vcopia = copia_arraylist(v);
-        //sort (v.begin(), v.end());  Ordenar vector en C++
-        Collections.sort(vcopia);   // Ordenar vector en Java
-        for(ArrayList<Integer> clique : cliques)
+        if(P.length == 0)
+        {
+            if(X.length == 0)
+            {
+                sortida.afegir(actual, mida);
+            }
+            return;
+        }
+        // Pivot: el vertex de P o X amb mes veins a P
+        int pivot = -1;
+        int millor = -1;
+        for(int u : P)
         {
-            if(contingut(vcopia, clique))
+            int m = mida_interseccio(P, P.length, adj[u]);
+            if(m > millor)
             {
-                return true;
+                millor = m;
+                pivot = u;
             }
         }
-        return false;
+        for(int u : X)
+        {
+            int m = mida_interseccio(P, P.length, adj[u]);
+            if(m > millor)
+            {
+                millor = m;
+                pivot = u;
+            }
+        }
+        // Nomes cal expandir els vertexs de P que no son veins del pivot
+        int[] candidats = new int[P.length];
+        int num_candidats = 0;
+        int j = 0;
+        for(int u : P)
+        {
+            while(j < adj[pivot].length && adj[pivot][j] < u)
+            {
+                j++;
+            }
+            if(j == adj[pivot].length || adj[pivot][j] != u)
+            {
+                candidats[num_candidats++] = u;
+            }
+        }
+        int[] p_actual = P;
+        int[] x_actual = X;
+        for(int c = 0; c < num_candidats; c++)
+        {
+            int v = candidats[c];
+            actual[mida] = v;
+            bron_kerbosch(adj, actual, mida + 1, interseccio(p_actual, p_actual.length, adj[v]), interseccio(x_actual, x_actual.length, adj[v]), sortida);
+            p_actual = treure(p_actual, v);
+            x_actual = afegir(x_actual, v);
+        }
     }
 
-    private ArrayList<Integer> unio_de_vectors(ArrayList<Integer> a, ArrayList<Integer> b)
+    // Bron-Kerbosch amb pivot de Tomita sobre l'entorn d'un vertex: els
+    // vertexs son les posicions dins de l'entorn i P, X i veins son bitsets
+    private void bron_kerbosch_bits(int[] entorn, long[][] veins, int[] actual, int mida, long[] P, long[] X, Arena sortida)
     {
-        ArrayList<Integer> res = new ArrayList<>();
-        for(Integer a1 : a)
+        int paraules = P.length;
+        boolean p_buit = true;
+        boolean x_buit = true;
+        for(int w = 0; w < paraules; w++)
         {
-            res.add(a1);
+            p_buit = p_buit && P[w] == 0;
+            x_buit = x_buit && X[w] == 0;
         }
-        for(Integer b1 : b)
+        if(p_buit)
         {
-            res.add(b1);
+            if(x_buit)
+            {
+                sortida.afegir(actual, mida);
+            }
+            return;
+        }
+        // Pivot: el vertex de P o X amb mes veins a P
+        int pivot = -1;
+        int millor = -1;
+        for(int w = 0; w < paraules; w++)
+        {
+            long bits = P[w] | X[w];
+            while(bits != 0)
+            {
+                int u = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                int m = 0;
+                for(int z = 0; z < paraules; z++)
+                {
+                    m += Long.bitCount(P[z] & veins[u][z]);
+                }
+                if(m > millor)
+                {
+                    millor = m;
+                    pivot = u;
+                }
+            }
+        }
+        // Nomes cal expandir els vertexs de P que no son veins del pivot
+        long[] candidats = new long[paraules];
+        for(int w = 0; w < paraules; w++)
+        {
+            candidats[w] = P[w] & ~veins[pivot][w];
+        }
+        for(int w = 0; w < paraules; w++)
+        {
+            long bits = candidats[w];
+            while(bits != 0)
+            {
+                int v = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                long[] nou_p = new long[paraules];
+                long[] nou_x = new long[paraules];
+                for(int z = 0; z < paraules; z++)
+                {
+                    nou_p[z] = P[z] & veins[v][z];
+                    nou_x[z] = X[z] & veins[v][z];
+                }
+                actual[mida] = entorn[v];
+                bron_kerbosch_bits(entorn, veins, actual, mida + 1, nou_p, nou_x, sortida);
+                P[w] &= ~(1L << v);
+                X[w] |= 1L << v;
+            }
         }
-        return res;
     }
 
-    private ArrayList<Integer> buscar_nous_candidats(ArrayList<Integer> candidats, int posicio_node)
+    // Cliques maximals on v es el primer vertex en ordre de degeneracio
+    private void cliques_del_vertex(int v, int[] posicio, Arena sortida)
     {
-        ArrayList<Integer> res = new ArrayList<>();
-        int node = candidats.get(posicio_node);
-        for(int i = posicio_node + 1; i < candidats.size(); i++)
+        int desde = sortida.num;
+        cercar_cliques(v, posicio, sortida);
+        revisar(sortida, desde);
+    }
+
+    private void cercar_cliques(int v, int[] posicio, Arena sortida)
+    {
+        int[] entorn = graf[v];
+        int s = entorn.length;
+        // Clique en construccio, com a molt v i tot el seu entorn
+        int[] actual = new int[s + 1];
+        actual[0] = v;
+        if(s > MIDA_MAXIMA_BITSET)
         {
-            for(int j = 0; j < graf.get(node).size(); j++)
+            // Entorn massa gran per una matriu de bits: vectors ordenats
+            int[] P = new int[s];
+            int[] X = new int[s];
+            int np = 0;
+            int nx = 0;
+            for(int u : entorn)
             {
-                if(candidats.get(i) == graf.get(node).get(j))
+                if(posicio[u] > posicio[v])
+                {
+                    P[np++] = u;
+                }
+                else
                 {
-                    res.add(candidats.get(i));
-                    break;
+                    X[nx++] = u;
                 }
             }
+            bron_kerbosch(graf, actual, 1, Arrays.copyOf(P, np), Arrays.copyOf(X, nx), sortida);
+            return;
         }
-        return res;
+        int paraules = (s + 63) >> 6;
+        long[][] veins = new long[s][paraules];
+        long[] P = new long[paraules];
+        long[] X = new long[paraules];
+        for(int a = 0; a < s; a++)
+        {
+            int u = entorn[a];
+            if(posicio[u] > posicio[v])
+            {
+                P[a >> 6] |= 1L << a;
+            }
+            else
+            {
+                X[a >> 6] |= 1L << a;
+            }
+            // Veins de u dins l'entorn de v, per fusio de vectors ordenats
+            int[] adj_u = graf[u];
+            int i = 0;
+            int b = 0;
+            while(i < adj_u.length && b < s)
+            {
+                if(adj_u[i] < entorn[b])
+                {
+                    i++;
+                }
+                else if(adj_u[i] > entorn[b])
+                {
+                    b++;
+                }
+                else
+                {
+                    veins[a][b >> 6] |= 1L << b;
+                    i++;
+                    b++;
+                }
+            }
+        }
+        bron_kerbosch_bits(entorn, veins, actual, 1, P, X, sortida);
+    }
+
+    // Estimacio dels bytes que ocupen n cliques amb e vertexs en total
+    private static long memoria_cliques(long n, long e)
+    {
+        // Un enter per vertex i un desplacament per clique, amb el doble de
+        // marge pel creixement de l'arena
+        return (n + e) * 8;
     }
 
-    private void backtracking(ArrayList<Integer> actual, ArrayList<Integer> candidats, int k)
+    // Compta les cliques noves de la llista (a partir de desde) i comprova
+    // els limits. Un cop les cliques es bolquen a disc, la llista es buida
+    private void revisar(Arena llista, int desde)
     {
-        if(contingut_en_alguna_clique(unio_de_vectors(actual, candidats)))
+        long vertexs_nous = llista.total() - llista.inici[desde];
+        long n = cliques_trobades.addAndGet(llista.num - desde);
+        long e = vertexs_trobats.addAndGet(vertexs_nous);
+        if(n > max_cliques)
         {
-            return;
+            throw new IllegalStateException("Clique Percolation: s'ha superat el limit de " + max_cliques + " cliques");
         }
-        if(actual.size() == k)
+        if(sortida_cliques == null && memoria_cliques(n, e) > memoria_lliure)
         {
-            if(!contingut_en_alguna_clique(actual))
+            if(!bolcar)
             {
-                ArrayList<Integer> copia = new ArrayList<>();
-                copia = copia_arraylist(actual);
-                Collections.sort(copia);
-                cliques.add(copia);
+                throw new IllegalStateException("Clique Percolation: les cliques no caben en memoria (" + n + " cliques)");
             }
+            obrir_fitxer();
+        }
+        if(sortida_cliques != null)
+        {
+            escriure(llista);
+            llista.buidar();
+        }
+    }
+
+    // Bytes que ocupen les cliques en memoria, les parelles i els nivells de k
+    // de l'estructura d'un llindar
+    private static long memoria(Arena cliques, int[] mides, int[] solapament, int[][] etiquetes)
+    {
+        long bytes = 4L * (cliques.valors.length + cliques.inici.length + mides.length) + 12L * solapament.length;
+        if(etiquetes != null)
+        {
+            for(int[] etiqueta : etiquetes)
+            {
+                if(etiqueta != null)
+                {
+                    bytes += 4L * etiqueta.length;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private long memoria_estats()
+    {
+        long bytes = 0;
+        for(Estat e : estats.values())
+        {
+            bytes += e.memoria();
+        }
+        return bytes;
+    }
+
+    // Comprova, abans de reservar-los, que els bytes nous caben amb la resta
+    // d'estructures dins la part del heap permesa. Primer es descarten els
+    // estats guardats, del menys usat al mes recent, i si tot i aixi no hi
+    // caben s'atura el calcul
+    private void reservar(long bytes)
+    {
+        long limit = Runtime.getRuntime().maxMemory() / FRACCIO_MEMORIA;
+        long us = memoria(cliques, mides, solapament, etiquetes) + memoria_anterior + memoria_temporal + bytes;
+        long guardats = memoria_estats();
+        Iterator<Estat> it = estats.values().iterator();
+        while(us + guardats > limit && it.hasNext())
+        {
+            Estat e = it.next();
+            guardats -= e.memoria();
+            esborrar(e.fitxer_cliques);
+            it.remove();
+        }
+        if(us > limit)
+        {
+            throw new IllegalStateException("Clique Percolation: els solapaments de les cliques no caben en memoria (" + num_cliques + " cliques)");
+        }
+    }
+
+    private synchronized void obrir_fitxer()
+    {
+        if(sortida_cliques != null)
+        {
             return;
         }
-        for(int i = 0; i < candidats.size(); i++)
+        try
         {
-            actual.add(candidats.get(i));
-            ArrayList<Integer> nous_candidats = new ArrayList<>();
-            nous_candidats = buscar_nous_candidats(candidats, i);
-            backtracking(actual, nous_candidats, k);
-            //actual.pop_back(); Remove last vector element on C++
-            actual.remove(actual.size() - 1);
+            fitxer_cliques = File.createTempFile("cliques", ".bin");
+            fitxer_cliques.deleteOnExit();
+            sortida_cliques = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fitxer_cliques), 1 << 16));
+        }
+        catch(IOException ex)
+        {
+            throw new IllegalStateException("Clique Percolation: no s'ha pogut crear el fitxer de cliques", ex);
         }
     }
 
-    // Pre: El vector cliques conte totes les cliques maximals de mida mes gran que k
-    private void calcula_cliques_mida_k(int k)
+    private synchronized void escriure(Arena llista)
     {
-        for(int i = 0; i < nodes; i++)
+        try
         {
-            ArrayList<Integer> actual = new ArrayList<>();
-            actual.add(i);
-            ArrayList<Integer> candidats = new ArrayList<>();
-            for(int j = 0; j < graf.get(i).size(); j++)
+            for(int c = 0; c < llista.num; c++)
             {
-                if(graf.get(i).get(j) > i)
+                sortida_cliques.writeInt(llista.mida(c));
+                for(int i = llista.inici[c]; i < llista.inici[c + 1]; i++)
+                {
+                    sortida_cliques.writeInt(llista.valors[i]);
+                }
+                if(num_cliques == mides.length)
                 {
-                    candidats.add(graf.get(i).get(j));
+                    mides = Arrays.copyOf(mides, Math.max(16, 2 * num_cliques));
                 }
+                mides[num_cliques++] = llista.mida(c);
             }
-            backtracking(actual, candidats, k);
+        }
+        catch(IOException ex)
+        {
+            throw new IllegalStateException("Clique Percolation: no s'han pogut escriure les cliques", ex);
         }
     }
 
-    private void calcula_cliques()
+    private void tancar_fitxer()
     {
-        int mida_maxima = calcula_grau_maxim() + 1;
-        for(int i = mida_maxima; i > 0; i--)
+        if(sortida_cliques != null)
         {
-            calcula_cliques_mida_k(i);
+            try
+            {
+                sortida_cliques.close();
+            }
+            catch(IOException ex)
+            {
+                throw new IllegalStateException("Clique Percolation: no s'han pogut escriure les cliques", ex);
+            }
+            sortida_cliques = null;
         }
     }
 
-    private int quants_nodes_coincideixen(ArrayList<Integer> a, ArrayList<Integer> b)
+    private int[] treure(int[] a, int v)
     {
-        int coincidencies = 0;
-        for(int i = 0; i < a.size(); i++)
+        int[] res = new int[a.length - 1];
+        int n = 0;
+        for(int x : a)
         {
-            for(int j = 0; j < b.size(); ++j)
+            if(x != v)
             {
-                if(a.get(i) == b.get(j))
+                res[n++] = x;
+            }
+        }
+        return res;
+    }
+
+    private int[] afegir(int[] a, int v)
+    {
+        int[] res = new int[a.length + 1];
+        int n = 0;
+        int i = 0;
+        while(i < a.length && a[i] < v)
+        {
+            res[n++] = a[i++];
+        }
+        res[n++] = v;
+        while(i < a.length)
+        {
+            res[n++] = a[i++];
+        }
+        return res;
+    }
+
+    // Enumera totes les cliques maximals: per cada vertex, en ordre de
+    // degeneracio, les cliques on es el primer vertex d'aquest ordre
+    private void calcula_cliques()
+    {
+        int[] ordre = ordre_degeneracio(graf);
+        int[] posicio = new int[nodes];
+        for(int i = 0; i < nodes; i++)
+        {
+            posicio[ordre[i]] = i;
+        }
+        cliques_trobades.set(0);
+        vertexs_trobats.set(0);
+        memoria_lliure = Runtime.getRuntime().maxMemory() / FRACCIO_MEMORIA - memoria_anterior - memoria_estats();
+        try
+        {
+            if(parallel && nodes > LLINDAR_PARALLEL)
+            {
+                // Cada tasca omple la seva propia llista, que es concatenen
+                ForkJoinPool pool = new ForkJoinPool();
+                try
                 {
-                    coincidencies++;
+                    cliques = pool.invoke(new TascaCliques(ordre, posicio, 0, nodes));
                 }
+                finally
+                {
+                    // Si una tasca ha fallat, les que encara corren no han
+                    // d'escriure al fitxer un cop tancat
+                    pool.shutdownNow();
+                    try
+                    {
+                        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+                    }
+                    catch(InterruptedException ex)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+            else
+            {
+                for(int i = 0; i < nodes; i++)
+                {
+                    cliques_del_vertex(ordre[i], posicio, cliques);
+                }
+            }
+            if(sortida_cliques != null)
+            {
+                // Les que encara eren a memoria tambe van al fitxer. No
+                // s'ordenen: conjunts_de numera les comunitats com si ho
+                // estiguessin
+                escriure(cliques);
+                cliques = new Arena();
+                tancar_fitxer();
+                return;
+            }
+        }
+        catch(IllegalStateException ex)
+        {
+            try
+            {
+                tancar_fitxer();
+            }
+            catch(IllegalStateException ex_tancar)
+            {
+                // Es llança l'error original
             }
+            sortida_cliques = null;
+            esborrar(fitxer_cliques);
+            fitxer_cliques = null;
+            throw ex;
+        }
+        // Mateix ordre que abans: de mes grans a mes petites i, a igual mida,
+        // lexicografic
+        cliques = cliques.ordenada();
+        num_cliques = cliques.num;
+        mides = new int[num_cliques];
+        for(int c = 0; c < num_cliques; c++)
+        {
+            mides[c] = cliques.mida(c);
+        }
+    }
+
+    private static void esborrar(File fitxer)
+    {
+        if(fitxer != null)
+        {
+            fitxer.delete();
+        }
+    }
+
+    private void afegir_parella(int a, int b, int coincidencies)
+    {
+        if(num_parelles == solapament.length)
+        {
+            int mida = Math.max(16, 2 * num_parelles);
+            reservar(12L * mida);
+            parella_a = Arrays.copyOf(parella_a, mida);
+            parella_b = Arrays.copyOf(parella_b, mida);
+            solapament = Arrays.copyOf(solapament, mida);
         }
-        return coincidencies;
+        parella_a[num_parelles] = a;
+        parella_b[num_parelles] = b;
+        solapament[num_parelles] = coincidencies;
+        num_parelles++;
     }
 
-    private void calcula_mat1()
+    // Nomes es miren les parelles de cliques que comparteixen algun vertex:
+    // amb l'index invers vertex -> cliques, per cada clique es compten les
+    // coincidencies amb les posteriors que toquen algun dels seus vertexs
+    private void calcula_solapaments()
     {
-        // Matrix initialization like Mi (cliques.size(), Vi(cliques.size(), 0))
-        for(int i = 0; i < cliques.size(); i++)
+        int[] inici = new int[nodes + 1];
+        LectorCliques lector = new LectorCliques();
+        while(lector.llegir())
+        {
+            for(int i = 0; i < lector.mida; i++)
+            {
+                inici[lector.clique[lector.inici + i] + 1]++;
+            }
+        }
+        for(int v = 0; v < nodes; v++)
         {
-            ArrayList<Integer> init = new ArrayList<>(Collections.nCopies(cliques.size(), 0));
-            mat1.add(init);
+            inici[v + 1] += inici[v];
         }
-        for(int i = 0; i < cliques.size(); i++)
+        // L'index ocupa tant com les cliques, encara que s'hagin bolcat
+        long bytes = 4L * (2L * nodes + inici[nodes] + 2L * num_cliques);
+        reservar(bytes);
+        memoria_temporal = bytes;
+        try
         {
-            for(int j = i; j < cliques.size(); ++j)
+            int[] index = new int[inici[nodes]];
+            int[] seguent = Arrays.copyOf(inici, nodes);
+            lector = new LectorCliques();
+            for(int c = 0; lector.llegir(); c++)
             {
-                int coincidencies = quants_nodes_coincideixen(cliques.get(i), cliques.get(j));
-                //mat1[i][j] = mat1[j][i] = coincidencies; En C++
-                mat1.get(i).set(j, coincidencies);
-                mat1.get(j).set(i, coincidencies);
+                for(int i = 0; i < lector.mida; i++)
+                {
+                    index[seguent[lector.clique[lector.inici + i]]++] = c;
+                }
+            }
+            int[] coincidencies = new int[num_cliques];
+            int[] tocades = new int[num_cliques];
+            lector = new LectorCliques();
+            for(int c = 0; lector.llegir(); c++)
+            {
+                int num_tocades = 0;
+                for(int j = 0; j < lector.mida; j++)
+                {
+                    int v = lector.clique[lector.inici + j];
+                    // L'index de cada vertex esta ordenat: saltem fins passar c
+                    int i = inici[v + 1] - 1;
+                    while(i >= inici[v] && index[i] > c)
+                    {
+                        if(coincidencies[index[i]]++ == 0)
+                        {
+                            tocades[num_tocades++] = index[i];
+                        }
+                        i--;
+                    }
+                }
+                Arrays.sort(tocades, 0, num_tocades);
+                for(int t = 0; t < num_tocades; t++)
+                {
+                    afegir_parella(c, tocades[t], coincidencies[tocades[t]]);
+                    coincidencies[tocades[t]] = 0;
+                }
             }
         }
+        finally
+        {
+            memoria_temporal = 0;
+        }
     }
 
     private void determinar_k()
@@ -300,9 +904,9 @@ public class CliquePercolation extends Algorithm
         double k_min = 999999;
         double k_max = 0;
         double suma_k = 0;
-        for(int i = 0; i < mat1.size(); i++)
+        for(int i = 0; i < num_cliques; i++)
         {
-            int k_size = mat1.get(i).get(i);
+            int k_size = mides[i];
             suma_k = suma_k + k_size;
             if(k_size > k_max)
             {
@@ -313,7 +917,7 @@ public class CliquePercolation extends Algorithm
                 k_min = k_size;
             }
         }
-        double mitja_k = suma_k / mat1.size();
+        double mitja_k = suma_k / num_cliques;
         //System.out.print("\n");
         //System.out.println("k min: " + (int)k_min);
         //System.out.println("k max: " + (int)k_max);
@@ -329,94 +933,284 @@ public class CliquePercolation extends Algorithm
         //System.out.println("K: " + K);
     }
 
-    private void calcula_mat2()
+    // Percolacio: dues k-cliques son adjacents si comparteixen k - 1 vertexs.
+    // Les parelles que solapen prou s'uneixen amb un union-find i cada
+    // conjunt amb alguna clique de mida >= K es una comunitat
+    private int[] percolar()
     {
         determinar_k();
-        // Matrix initialization like Mb (cliques.size(), Vb(cliques.size(), false))
-        for(int i = 0; i < cliques.size(); i++)
+        reservar(16L * num_cliques);
+        UnionFind uf = new UnionFind(num_cliques);
+        for(int i = 0; i < num_parelles; i++)
         {
-            ArrayList<Boolean> init = new ArrayList<>();
-            for(int j = 0; j < cliques.size(); j++)
+            if(solapament[i] >= (K - 1))
             {
-                init.add(Boolean.FALSE);
+                uf.union(parella_a[i], parella_b[i]);
             }
-            mat2.add(init);
         }
-        for(int i = 0; i < mat1.size(); i++)
+        return etiquetar(uf, K);
+    }
+
+    // Comunitat de cada clique (numerades per la primera clique de cada una)
+    // o -1 si la clique te menys de k vertexs
+    private int[] etiquetar(UnionFind uf, int k)
+    {
+        int[] etiqueta = new int[num_cliques];
+        int[] grup = new int[num_cliques];
+        Arrays.fill(grup, -1);
+        int num_grups = 0;
+        for(int i = 0; i < num_cliques; i++)
         {
-            for(int j = 0; j < mat1.size(); j++)
+            etiqueta[i] = -1;
+            if(mides[i] > (k - 1))
             {
-                if((i != j && mat1.get(i).get(j) >= (K - 1)) || (i == j && mat1.get(i).get(j) > (K - 1)))
+                int arrel = uf.find(i);
+                if(grup[arrel] == -1)
                 {
-                    mat2.get(i).set(j, Boolean.TRUE);
-                    mat2.get(j).set(i, Boolean.TRUE);
+                    grup[arrel] = num_grups++;
                 }
+                etiqueta[i] = grup[arrel];
             }
         }
+        return etiqueta;
     }
 
-    private void visitar_dfs(int i, ArrayList<Integer> aux, ArrayList<Boolean> vist)
+    // Percolacio per tots els k alhora: les parelles s'ordenen per solapament
+    // i es recorre k de gran a petit afegint-les a un unic union-find
+    private void calcula_nivells_k()
     {
-        vist.set(i, Boolean.TRUE);
-        aux.add(i);
-        for(int j = 0; j < cliques.size(); j++)
+        int k_max = 0;
+        for(int i = 0; i < num_cliques; i++)
+        {
+            k_max = Math.max(k_max, mides[i]);
+        }
+        reservar(4L * num_parelles + 4L * num_cliques * (k_max + 3));
+        // Ordenacio per comptatge, de mes solapament a menys
+        int[] inici = new int[k_max + 2];
+        for(int i = 0; i < num_parelles; i++)
+        {
+            inici[k_max - solapament[i] + 1]++;
+        }
+        for(int s = 0; s <= k_max; s++)
+        {
+            inici[s + 1] += inici[s];
+        }
+        int[] ordre = new int[num_parelles];
+        for(int i = 0; i < num_parelles; i++)
+        {
+            ordre[inici[k_max - solapament[i]]++] = i;
+        }
+        UnionFind uf = new UnionFind(num_cliques);
+        etiquetes = new int[k_max + 1][];
+        int j = 0;
+        for(int k = k_max; k >= 2; k--)
         {
-            if(j != i && !vist.get(j) && mat2.get(i).get(j))
+            while(j < num_parelles && solapament[ordre[j]] >= (k - 1))
             {
-                visitar_dfs(j, aux, vist);
+                uf.union(parella_a[ordre[j]], parella_b[ordre[j]]);
+                j++;
             }
+            etiquetes[k] = etiquetar(uf, k);
         }
     }
 
-    private ArrayList< ArrayList<Integer>> dfs()
+    private ArrayList< ArrayList<Integer>> conjunts_de(int[] etiqueta)
     {
-        // Vector initialization like Vb (cliques.size(), false);
-        ArrayList<Boolean> vist = new ArrayList<>();
-        for(int i = 0; i < cliques.size(); i++)
+        ArrayList< ArrayList<Integer>> res = new ArrayList<>();
+        if(etiqueta == null)
         {
-            vist.add(Boolean.FALSE);
+            return res;
         }
-        ArrayList< ArrayList<Integer>> res_dfs = new ArrayList<>();
-        for(int i = 0; i < cliques.size(); i++)
+        int num_grups = 0;
+        int total = 0;
+        for(int c = 0; c < num_cliques; c++)
         {
-            if(mat2.get(i).get(i) && !vist.get(i))
+            if(etiqueta[c] != -1)
             {
-                ArrayList<Integer> aux = new ArrayList<>();
-                visitar_dfs(i, aux, vist);
-                res_dfs.add(aux);
+                num_grups = Math.max(num_grups, etiqueta[c] + 1);
+                total += mides[c];
             }
         }
-        return res_dfs;
+        // Parelles (comunitat, vertex) en un sol long, en una passada per
+        // les cliques; ordenades, les repetides queden juntes
+        boolean bolcades = fitxer_cliques != null;
+        reservar((bolcades ? 12L : 8L) * total);
+        long[] claus = new long[total];
+        // Les cliques bolcades no estan ordenades: per numerar les comunitats
+        // igual que en memoria, es guarda la primera clique de cada una en
+        // l'ordre de l'arena ordenada
+        final int[][] primera = bolcades ? new int[num_grups][] : null;
+        int n = 0;
+        LectorCliques lector = new LectorCliques();
+        for(int c = 0; lector.llegir(); c++)
+        {
+            if(etiqueta[c] != -1)
+            {
+                for(int i = 0; i < lector.mida; i++)
+                {
+                    claus[n++] = ((long) etiqueta[c] << 32) | lector.clique[lector.inici + i];
+                }
+                int[] actual = primera == null ? null : primera[etiqueta[c]];
+                if(primera != null && (actual == null || comparar_cliques(lector.clique, lector.inici, lector.mida, actual, 0, actual.length) < 0))
+                {
+                    primera[etiqueta[c]] = Arrays.copyOfRange(lector.clique, lector.inici, lector.inici + lector.mida);
+                }
+            }
+        }
+        if(primera != null)
+        {
+            Integer[] ordre = new Integer[num_grups];
+            for(int g = 0; g < num_grups; g++)
+            {
+                ordre[g] = g;
+            }
+            Arrays.sort(ordre, new Comparator<Integer>()
+            {
+                @Override
+                public int compare(Integer a, Integer b)
+                {
+                    return comparar_cliques(primera[a], 0, primera[a].length, primera[b], 0, primera[b].length);
+                }
+            });
+            long[] nou = new long[num_grups];
+            for(int g = 0; g < num_grups; g++)
+            {
+                nou[ordre[g]] = g;
+            }
+            for(int i = 0; i < n; i++)
+            {
+                claus[i] = (nou[(int) (claus[i] >>> 32)] << 32) | (claus[i] & 0xFFFFFFFFL);
+            }
+        }
+        Arrays.sort(claus);
+        for(int i = 0; i < num_grups; i++)
+        {
+            res.add(new ArrayList<Integer>());
+        }
+        for(int i = 0; i < n; i++)
+        {
+            if(i == 0 || claus[i] != claus[i - 1])
+            {
+                res.get((int) (claus[i] >>> 32)).add(vertexs.get((int) claus[i]));
+            }
+        }
+        return res;
+    }
+
+    // Ordre de les cliques a l'arena ordenada: de mes grans a mes petites i,
+    // a igual mida, lexicografic
+    private static int comparar_cliques(int[] a, int inici_a, int mida_a, int[] b, int inici_b, int mida_b)
+    {
+        if(mida_a != mida_b)
+        {
+            return mida_b - mida_a;
+        }
+        for(int i = 0; i < mida_a; i++)
+        {
+            int x = a[inici_a + i];
+            int y = b[inici_b + i];
+            if(x != y)
+            {
+                return x < y ? -1 : 1;
+            }
+        }
+        return 0;
     }
 
     private void calcula_conjunts()
     {
-        ArrayList< ArrayList<Integer>> res_dfs = new ArrayList<>();
-        res_dfs = dfs();
-        for(int i = 0; i < res_dfs.size(); i++)
+        if(multi_k)
+        {
+            determinar_k();
+            conjunts = conjunts_de(K < etiquetes.length ? etiquetes[K] : null);
+        }
+        else
+        {
+            conjunts = conjunts_de(percolar());
+        }
+        k_conjunts = K;
+    }
+
+    // Tot el que depen de W i no de K
+    private void calcula_estructura()
+    {
+        cliques = new Arena();
+        mides = new int[0];
+        num_cliques = 0;
+        fitxer_cliques = null;
+        parella_a = new int[0];
+        parella_b = new int[0];
+        solapament = new int[0];
+        num_parelles = 0;
+        etiquetes = null;
+        transform_graph();
+        calcula_cliques();
+        graf = null;
+        calcula_solapaments();
+        if(multi_k)
         {
-            ArrayList<Integer> nodes_implicats = new ArrayList<>();
-            // Vector initialization like Vb (cliques.size(), false);
-            ArrayList<Boolean> brut = new ArrayList<>();
-            for(int p = 0; p < nodes; p++)
+            calcula_nivells_k();
+        }
+    }
+
+    // Canvia al llindar W actual, recuperant l'estructura si ja s'havia
+    // calculat. Si el calcul del nou W falla, es conserva l'estructura i el W
+    // anteriors, i el proper obtain ho torna a intentar
+    private void canviar_w(double w_anterior)
+    {
+        Estat anterior = new Estat();
+        anterior.cliques = cliques;
+        anterior.mides = mides;
+        anterior.num_cliques = num_cliques;
+        anterior.fitxer_cliques = fitxer_cliques;
+        anterior.parella_a = parella_a;
+        anterior.parella_b = parella_b;
+        anterior.solapament = solapament;
+        anterior.num_parelles = num_parelles;
+        anterior.etiquetes = etiquetes;
+        // L'estat actual no es guarda, perque no es descarti mentre s'usa
+        Estat e = estats.remove(arestes_amb_pes(W));
+        if(e == null)
+        {
+            memoria_anterior = anterior.memoria();
+            boolean calculat = false;
+            try
             {
-                brut.add(Boolean.FALSE);
+                calcula_estructura();
+                calculat = true;
             }
-            for(int j = 0; j < res_dfs.get(i).size(); j++)
+            finally
             {
-                for(int z = 0; z < cliques.get(res_dfs.get(i).get(j)).size(); z++)
+                memoria_anterior = 0;
+                if(!calculat)
                 {
-                    //if (not brut[cliques[res_dfs[i][j]][z]]) {
-                    if(!brut.get(cliques.get(res_dfs.get(i).get(j)).get(z)))
-                    {
-                        nodes_implicats.add(vertexs.get(cliques.get(res_dfs.get(i).get(j)).get(z)));
-                        brut.set(cliques.get(res_dfs.get(i).get(j)).get(z), Boolean.TRUE);
-                    }
+                    graf = null;
+                    esborrar(fitxer_cliques);
+                    recuperar(anterior);
+                    W = w_anterior;
                 }
             }
-            conjunts.add(nodes_implicats);
         }
+        else
+        {
+            recuperar(e);
+        }
+        estats.put(arestes_amb_pes(w_anterior), anterior);
     }
+
+    private void recuperar(Estat e)
+    {
+        cliques = e.cliques;
+        mides = e.mides;
+        num_cliques = e.num_cliques;
+        fitxer_cliques = e.fitxer_cliques;
+        parella_a = e.parella_a;
+        parella_b = e.parella_b;
+        solapament = e.solapament;
+        num_parelles = e.num_parelles;
+        etiquetes = e.etiquetes;
+    }
+
     /*
      public void read_graph(ArrayList< ArrayList<Integer> > g) {
      //Copiar arraylist
@@ -428,36 +1222,355 @@ public class CliquePercolation extends Algorithm
      }
      */
 
-    private void main()
-    {
-        //write_graph(graf);
-        calcula_cliques();
-        calcula_mat1();
-        //write_graph(mat1);
-        calcula_mat2();
-        calcula_conjunts();
-        //write_graph(conjunts);
-    }
-
     @Override
     public void calc(Graph<Integer, Double> g)
     {
         // Reserva de nuevos espacios de memoria
-        vertexs = new ArrayList<>();
-        graf = new ArrayList<>();
-        cliques = new ArrayList<>();
-        mat1 = new ArrayList<>();
-        mat2 = new ArrayList<>();
         conjunts = new ArrayList<>();
-        // Graph to ArrayList
-        transform_graph(g);
+        esborrar(fitxer_cliques);
+        for(Estat e : estats.values())
+        {
+            esborrar(e.fitxer_cliques);
+        }
+        estats = new LinkedHashMap<Integer, Estat>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Estat> eldest)
+            {
+                if(size() > MAX_ESTATS)
+                {
+                    esborrar(eldest.getValue().fitxer_cliques);
+                    return true;
+                }
+                return false;
+            }
+        };
+        // Graph to arrays
+        llegir_arestes(g);
+        determinar_w();
         // Calc
-        main();
+        calcula_estructura();
+        calcula_conjunts();
+    }
+
+    /**
+     * Calcula les comunitats per tots els valors de k alhora, de manera que
+     * obtain respon qualsevol p sense repetir el calcul. Si la p d'obtain
+     * canvia el pes minim W, les cliques es recalculen sobre les arestes ja
+     * ordenades (o es recuperen si aquest W ja s'havia calculat)
+     * @param multiK Cert per calcular tots els nivells de k
+     */
+    public void setMultiK(boolean multiK)
+    {
+        this.multi_k = multiK;
+    }
+
+    /**
+     * Fixa el nombre maxim de cliques: si se'n troben mes, calc i obtain
+     * llancen IllegalStateException en lloc d'esgotar la memoria
+     *
+     * @param maxCliques Nombre maxim de cliques maximals
+     */
+    public void setMaxCliques(long maxCliques)
+    {
+        this.max_cliques = maxCliques;
+    }
+
+    /**
+     * Permet bolcar les cliques a un fitxer temporal quan la seva estimacio
+     * de memoria supera una quarta part del heap. Sense, el calcul s'atura
+     * amb IllegalStateException. L'index de solapaments i les parelles de
+     * cliques no es bolquen: si no caben en aquesta mateixa quarta part del
+     * heap, el calcul tambe s'atura amb IllegalStateException
+     *
+     * @param bolcar Cert per bolcar les cliques a disc si no caben
+     */
+    public void setSpill(boolean bolcar)
+    {
+        this.bolcar = bolcar;
+    }
+
+    /**
+     * Activa l'enumeracio de cliques en paral·lel: els vertexs arrel es
+     * reparteixen entre tasques i el resultat es el mateix
+     *
+     * @param parallel Cert per calcular en paral·lel
+     */
+    public void setParallel(boolean parallel)
+    {
+        this.parallel = parallel;
     }
 
     @Override
     public ArrayList<ArrayList<Integer>> obtain()
     {
+        if(multi_k && etiquetes != null)
+        {
+            double w_anterior = W;
+            determinar_w();
+            if(arestes_amb_pes(W) != arestes_amb_pes(w_anterior))
+            {
+                canviar_w(w_anterior);
+                k_conjunts = -1;
+            }
+            determinar_k();
+            if(K != k_conjunts)
+            {
+                conjunts = conjunts_de(K < etiquetes.length ? etiquetes[K] : null);
+                k_conjunts = K;
+            }
+        }
         return conjunts;
     }
+
+    /**
+     * Tasca que enumera les cliques maximals dels vertexs arrel entre les
+     * posicions inici i fi de l'ordre de degeneracio. Si en te massa, en
+     * passa la meitat a una tasca nova.
+     */
+    @SuppressWarnings("serial")
+    private class TascaCliques extends RecursiveTask<Arena>
+    {
+        private int[] ordre;
+        private int[] posicio;
+        private int inici;
+        private int fi;
+
+        public TascaCliques(int[] ordre, int[] posicio, int inici, int fi)
+        {
+            this.ordre = ordre;
+            this.posicio = posicio;
+            this.inici = inici;
+            this.fi = fi;
+        }
+
+        @Override
+        protected Arena compute()
+        {
+            if(fi - inici > LLINDAR_PARALLEL)
+            {
+                int mig = (inici + fi) >>> 1;
+                TascaCliques dreta = new TascaCliques(ordre, posicio, mig, fi);
+                dreta.fork();
+                Arena res = new TascaCliques(ordre, posicio, inici, mig).compute();
+                res.afegir(dreta.join());
+                return res;
+            }
+            Arena res = new Arena();
+            for(int i = inici; i < fi; i++)
+            {
+                cliques_del_vertex(ordre[i], posicio, res);
+            }
+            return res;
+        }
+    }
+
+    /**
+     * Estructura calculada per un llindar W: cliques, solapaments entre
+     * cliques i comunitats de cada k
+     */
+    private static class Estat
+    {
+        private Arena cliques;
+        private int[] mides;
+        private int num_cliques;
+        private File fitxer_cliques;
+        private int[] parella_a;
+        private int[] parella_b;
+        private int[] solapament;
+        private int num_parelles;
+        private int[][] etiquetes;
+
+        public long memoria()
+        {
+            return CliquePercolation.memoria(cliques, mides, solapament, etiquetes);
+        }
+    }
+
+    /**
+     * Recorre les cliques en ordre, de l'arena o del fitxer temporal
+     */
+    private class LectorCliques
+    {
+        private int seguent = 0;
+        private DataInputStream entrada;
+        // La clique actual son les posicions inici .. inici + mida - 1
+        private int[] clique = new int[16];
+        private int inici;
+        private int mida;
+
+        public LectorCliques()
+        {
+            if(fitxer_cliques != null)
+            {
+                try
+                {
+                    entrada = new DataInputStream(new BufferedInputStream(new FileInputStream(fitxer_cliques), 1 << 16));
+                }
+                catch(IOException ex)
+                {
+                    throw new IllegalStateException("Clique Percolation: no s'han pogut llegir les cliques", ex);
+                }
+            }
+        }
+
+        /**
+         * Passa a la clique seguent
+         * @return Fals si ja no en queden
+         */
+        public boolean llegir()
+        {
+            if(seguent == num_cliques)
+            {
+                tancar();
+                return false;
+            }
+            mida = mides[seguent];
+            if(entrada == null)
+            {
+                // Directament sobre l'arena, sense copiar
+                clique = cliques.valors;
+                inici = cliques.inici[seguent];
+            }
+            else
+            {
+                if(clique.length < mida)
+                {
+                    clique = new int[Math.max(mida, 2 * clique.length)];
+                }
+                try
+                {
+                    entrada.readInt();
+                    for(int i = 0; i < mida; i++)
+                    {
+                        clique[i] = entrada.readInt();
+                    }
+                }
+                catch(IOException ex)
+                {
+                    tancar();
+                    throw new IllegalStateException("Clique Percolation: no s'han pogut llegir les cliques", ex);
+                }
+            }
+            seguent++;
+            return true;
+        }
+
+        private void tancar()
+        {
+            if(entrada != null)
+            {
+                try
+                {
+                    entrada.close();
+                }
+                catch(IOException ex)
+                {
+                    // Nomes es llegia
+                }
+                entrada = null;
+            }
+        }
+    }
+
+    /**
+     * Totes les cliques en un sol vector d'enters: la clique c ocupa les
+     * posicions inici[c] .. inici[c + 1] - 1 de valors, en ordre creixent
+     */
+    private static class Arena
+    {
+        private int[] valors = new int[64];
+        private int[] inici = new int[17];
+        private int num;
+
+        public int mida(int c)
+        {
+            return inici[c + 1] - inici[c];
+        }
+
+        public int total()
+        {
+            return inici[num];
+        }
+
+        private void reservar(int cliques, int enters)
+        {
+            if(num + cliques >= inici.length)
+            {
+                inici = Arrays.copyOf(inici, Math.max(num + cliques + 1, 2 * inici.length));
+            }
+            if(total() + enters > valors.length)
+            {
+                valors = Arrays.copyOf(valors, Math.max(total() + enters, 2 * valors.length));
+            }
+        }
+
+        /**
+         * Afegeix una clique, que s'ordena dins l'arena
+         * @param clique Vertexs de la clique
+         * @param mida Nombre de vertexs
+         */
+        public void afegir(int[] clique, int mida)
+        {
+            reservar(1, mida);
+            int desde = total();
+            System.arraycopy(clique, 0, valors, desde, mida);
+            Arrays.sort(valors, desde, desde + mida);
+            inici[++num] = desde + mida;
+        }
+
+        /**
+         * Afegeix al final totes les cliques d'una altra arena
+         * @param altra L'altra arena
+         */
+        public void afegir(Arena altra)
+        {
+            reservar(altra.num, altra.total());
+            int desde = total();
+            System.arraycopy(altra.valors, 0, valors, desde, altra.total());
+            for(int c = 1; c <= altra.num; c++)
+            {
+                inici[num + c] = desde + altra.inici[c];
+            }
+            num += altra.num;
+        }
+
+        public void buidar()
+        {
+            num = 0;
+        }
+
+        /**
+         * Obte una copia ajustada de l'arena amb les cliques ordenades de
+         * mes grans a mes petites i, a igual mida, lexicograficament
+         * @return L'arena ordenada
+         */
+        public Arena ordenada()
+        {
+            Integer[] ordre = new Integer[num];
+            for(int c = 0; c < num; c++)
+            {
+                ordre[c] = c;
+            }
+            Arrays.sort(ordre, new Comparator<Integer>()
+            {
+                @Override
+                public int compare(Integer a, Integer b)
+                {
+                    return comparar_cliques(valors, inici[a], mida(a), valors, inici[b], mida(b));
+                }
+            });
+            Arena res = new Arena();
+            res.valors = new int[total()];
+            res.inici = new int[num + 1];
+            for(int c = 0; c < num; c++)
+            {
+                int m = mida(ordre[c]);
+                System.arraycopy(valors, inici[ordre[c]], res.valors, res.inici[c], m);
+                res.inici[c + 1] = res.inici[c] + m;
+            }
+            res.num = num;
+            return res;
+        }
+    }
 }
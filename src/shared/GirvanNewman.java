@@ -1,9 +1,12 @@
 package shared;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Stack;
+import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Class for applying the Girvan-Newman algorithm to a graph
@@ -13,10 +16,90 @@ import java.util.Stack;
  */
 public class GirvanNewman extends Algorithm
 {
+    private ArrayList<Integer> vertexs;
+    // Arestes no dirigides indexades: extrems (index de vertex) i pes
+    private int[] origen;
+    private int[] desti;
+    private double[] pes;
+    private boolean[] viva;
+    // Llistes d'adjacencia compactes: per cada vertex, les posicions
+    // [adjInici[v], adjInici[v + 1]) contenen el vei i l'aresta corresponent
+    private int[] adjInici;
+    private int[] adjVei;
+    private int[] adjAresta;
+    // Distancia per cada aresta dirigida i "betweenness" per aresta no dirigida
+    private double[] dist;
+    private double[] betw;
+    private int[] marca;
+    // Components connexos actuals i nivell on s'arriba a cada nombre de components
+    private int components;
+    private int[] nivellComponents;
+    private int[] cua;
+    private int[] visitat;
+    private AtomicInteger recorreguts;
+    // Dendrograma: arestes en l'ordre en que s'han eliminat i, per cada
+    // percentatge, el nombre d'arestes eliminades que li correspon
+    private int[] eliminades;
+    private int numEliminades;
+    private int[] pasNivell;
+
+    private int totalArestes;
+    private int vives;
+    // Modularitat de la particio en components, per component i la millor trobada
+    private int[] etiqueta;
+    private double[] forca;
+    private double[] intraCom;
+    private double[] grauCom;
+    private double pesTotal;
+    private double modularitat;
+    private double millorModularitat;
+    private int millorNivell;
+    private boolean picPassat;
+    private int nivellActual;
+    private stopMode mode = stopMode.Full;
+    private static final double MODULARITAT_MINIMA = 0.1;
+    // Execucio en paral·lel per components: un component amb menys arestes
+    // vives que el llindar no es separa en una tasca propia
+    private boolean parallel = false;
+    private static final int LLINDAR_PARALLEL = 256;
+    private int[] totsVertexs;
+    private int[] totesArestes;
+
+    /**
+     * Criteri de parada de l'algorisme: Full elimina totes les arestes,
+     * ModularityPeak s'atura quan la modularitat ja ha passat el seu maxim i
+     * TargetP quan, a mes, el percentatge d'arestes eliminades supera p
+     */
+    public static enum stopMode
+    {
+        Full, TargetP, ModularityPeak;
+    }
+
     public GirvanNewman()
     {
     }
 
+    /**
+     * Fixa el criteri de parada de l'algorisme
+     *
+     * @param mode Criteri de parada
+     */
+    public void setStopMode(stopMode mode)
+    {
+        this.mode = mode;
+    }
+
+    /**
+     * Activa el calcul en paral·lel: un cop el graf es desconnecta, cada
+     * component prou gran es processa en una tasca propia
+     *
+     * @param parallel Cert per calcular en paral·lel
+     */
+    public void setParallel(boolean parallel)
+    {
+        this.parallel = parallel;
+    }
+
     /**
      * Appicar l'algorisme de Girvan-Newman
      *
@@ -25,121 +108,707 @@ public class GirvanNewman extends Algorithm
     @Override
     public void calc(Graph<Integer, Double> g1)
     {
-        HashMap<Integer, HashMap<Integer, Double>> betw = new HashMap<Integer, HashMap<Integer, Double>>();
-        graphs = new HashMap<Integer, Graph<Integer, Double>>();
-        Graph<Integer, Double> g = g1.clone();
-        Integer totalArestes = calcArestes(g);
-        graphs.put(0, g.clone());
-        // 1. Calcular/Recalcular la "betweeness" de cada aresta del graf
-        while(calcBetw(g, betw))
+        construirArestes(g1);
+        // Com abans, es compten les arestes en els dos sentits
+        totalArestes = adjAresta.length;
+        vives = totalArestes;
+        iniciarComponents();
+        eliminades = new int[origen.length];
+        numEliminades = 0;
+        pasNivell = new int[101];
+        Arrays.fill(pasNivell, -1);
+        pasNivell[0] = 0;
+        nivellActual = 0;
+        picPassat = false;
+        continuar(mode);
+    }
+
+    /**
+     * Elimina arestes fins que es compleix el criteri de parada o no en queden
+     *
+     * @param criteri Criteri de parada
+     */
+    private void continuar(stopMode criteri)
+    {
+        if(parallel)
+        {
+            continuarParallel(criteri);
+            return;
+        }
+        while(vives > 0)
         {
+            if(aturar(criteri))
+            {
+                return;
+            }
+            // 1. Calcular/Recalcular la "betweeness" de cada aresta del graf
+            calcBetw(totsVertexs, totsVertexs.length, totesArestes, totesArestes.length);
             // 2. Treiem l'aresta amb el pes més alt
-            Double heValue = null;
-            Integer heOrigin = null;
-            Integer heDesti = null;
-            Iterator<Integer> i1V = betw.keySet().iterator();
-            // Per cada vertex
-            while(i1V.hasNext())
-            {
-                Integer nextInt = i1V.next();
-                HashMap<Integer, Double> edges = betw.get(nextInt);
-                Iterator<Integer> i2V = edges.keySet().iterator();
-                // Mirem la seva aresta
-                while(i2V.hasNext())
-                {
-                    Integer next2Int = i2V.next();
-                    Double edge = edges.get(next2Int);
-                    // Mirar si l'aresta existeix i te el pes mes alt
-                    if(edge != null && (heValue == null || edge > heValue))
+            eliminar(arestaMaxima(totesArestes, totesArestes.length));
+        }
+    }
+
+    /**
+     * Elimina una aresta del dendrograma i actualitza els nivells, els
+     * components i la modularitat
+     *
+     * @param e Aresta a eliminar
+     */
+    private void eliminar(int e)
+    {
+        viva[e] = false;
+        vives -= (origen[e] == desti[e]) ? 1 : 2;
+        eliminades[numEliminades++] = e;
+        Double perc = (vives / (totalArestes * 1.0)) * 100;
+        nivellActual = 100 - perc.intValue();
+        // Cada percentatge es queda amb l'ultim pas que hi arriba
+        pasNivell[nivellActual] = numEliminades;
+        // Si l'aresta eliminada separa el seu component, n'hi ha un mes
+        if(origen[e] != desti[e])
+        {
+            int mida = recorrer(origen[e], desti[e], cua, recorreguts.incrementAndGet());
+            if(mida != -1)
+            {
+                ++components;
+                nivellComponents[components] = nivellActual;
+                separar(etiqueta[origen[e]], components - 1, mida);
+                if(modularitat > millorModularitat)
+                {
+                    millorModularitat = modularitat;
+                    millorNivell = nivellActual;
+                }
+                else if(passatPic())
+                {
+                    picPassat = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Versio paral·lela de continuar. Cada component gran es una tasca que
+     * elimina les seves arestes i, quan es divideix en dues parts grans, en
+     * crea una altra per una de les parts. Les arestes no vives d'un
+     * component no afecten la "betweenness" dels altres, aixi que l'ordre
+     * global s'obte fusionant les seqüencies de cada tasca agafant sempre la
+     * que te el valor mes alt, igual que faria l'execucio seqüencial. Despres
+     * es reprodueix aquest ordre amb eliminar per portar els nivells, els
+     * components i la modularitat.
+     *
+     * @param criteri Criteri de parada
+     */
+    private void continuarParallel(stopMode criteri)
+    {
+        ForkJoinPool pool = new ForkJoinPool();
+        try
+        {
+            while(vives > 0 && !aturar(criteri))
+            {
+                int limit = limitPassos(criteri);
+                Sequencia seq = pool.invoke(new TascaArrel(tasquesInicials(limit)));
+                // Les tasques han marcat les arestes com eliminades, es
+                // restauren i s'eliminen de nou en l'ordre global
+                for(int i = 0; i < seq.mida; i++)
+                {
+                    viva[seq.arestes[i]] = true;
+                }
+                // Si alguna tasca s'ha aturat pel limit, nomes els primers
+                // limit passos de la fusio son segurs
+                int passos = seq.truncada ? Math.min(limit, seq.mida) : seq.mida;
+                for(int i = 0; i < passos; i++)
+                {
+                    if(aturar(criteri))
                     {
-                        heValue = edge;
-                        heOrigin = nextInt;
-                        heDesti = next2Int;
+                        return;
                     }
+                    eliminar(seq.arestes[i]);
                 }
             }
-            if(heValue != null)
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Maxim de passos que poden fer les tasques paral·leles abans de tornar a
+     * mirar el criteri de parada
+     *
+     * @param criteri Criteri de parada
+     * @return Nombre de passos
+     */
+    private int limitPassos(stopMode criteri)
+    {
+        if(criteri == stopMode.Full)
+        {
+            return Integer.MAX_VALUE;
+        }
+        if(criteri == stopMode.TargetP && !arribatAP())
+        {
+            return passosFinsAP();
+        }
+        // Mentre s'espera el pic de modularitat, per trams d'un 5% de les arestes
+        return Math.max(1, totalArestes / 20);
+    }
+
+    /**
+     * Estima quants passos calen per arribar al nivell p + 2, on segur que
+     * el nivell mes proper a p ja no canvia en la majoria de casos. Cada pas
+     * elimina com a minim una aresta en cada sentit comptada.
+     *
+     * @return Nombre de passos
+     */
+    private int passosFinsAP()
+    {
+        int eliminats = totalArestes - vives;
+        int a = eliminats;
+        while(a < totalArestes)
+        {
+            Double perc = ((totalArestes - a) / (totalArestes * 1.0)) * 100;
+            if(100 - perc.intValue() >= p + 2)
             {
-                g.removeEdge(heOrigin, heDesti);
+                break;
             }
-            Integer i = calcArestes(g);
-            Double perc = ((double) (i / (totalArestes * 1.0))) * 100;
-            graphs.put(100 - perc.intValue(), g.clone());
-            betw = new HashMap<Integer, HashMap<Integer, Double>>();
-            //System.out.println("Arestes: " + i + " de "+totalArestes+": " + perc.intValue() + "%");
+            ++a;
         }
+        return Math.max(1, a - eliminats);
     }
 
-    private Integer calcArestes(Graph<Integer, Double> g)
+    /**
+     * Crea una tasca per cada component amb prou arestes vives i una altra per
+     * la resta de components petits
+     *
+     * @param limit Maxim de passos de cada tasca
+     * @return Llista de tasques
+     */
+    private ArrayList<Tasca> tasquesInicials(int limit)
     {
-        Integer i = 0;
-        for(Integer v : g.getVertexs())
+        int n = vertexs.size();
+        int[] arestesCom = new int[components];
+        for(int e = 0; e < origen.length; e++)
         {
-            i += g.getEdges(v).size();
+            if(viva[e])
+            {
+                arestesCom[etiqueta[origen[e]]]++;
+            }
         }
-        return i;
+        // Els components petits es processen junts a la tasca -1
+        int[] tasca = new int[components];
+        int numTasques = 0;
+        for(int c = 0; c < components; c++)
+        {
+            tasca[c] = (arestesCom[c] >= LLINDAR_PARALLEL) ? numTasques++ : -1;
+        }
+        int[] midaVs = new int[numTasques + 1];
+        int[] midaEs = new int[numTasques + 1];
+        for(int v = 0; v < n; v++)
+        {
+            midaVs[tasca[etiqueta[v]] + 1]++;
+        }
+        for(int e = 0; e < origen.length; e++)
+        {
+            if(viva[e])
+            {
+                midaEs[tasca[etiqueta[origen[e]]] + 1]++;
+            }
+        }
+        int[][] vs = new int[numTasques + 1][];
+        int[][] es = new int[numTasques + 1][];
+        for(int t = 0; t <= numTasques; t++)
+        {
+            vs[t] = new int[midaVs[t]];
+            es[t] = new int[midaEs[t]];
+            midaVs[t] = 0;
+            midaEs[t] = 0;
+        }
+        // En ordre creixent, com a l'execucio seqüencial
+        for(int v = 0; v < n; v++)
+        {
+            int t = tasca[etiqueta[v]] + 1;
+            vs[t][midaVs[t]++] = v;
+        }
+        for(int e = 0; e < origen.length; e++)
+        {
+            if(viva[e])
+            {
+                int t = tasca[etiqueta[origen[e]]] + 1;
+                es[t][midaEs[t]++] = e;
+            }
+        }
+        ArrayList<Tasca> tasques = new ArrayList<Tasca>();
+        for(int t = 0; t <= numTasques; t++)
+        {
+            if(midaEs[t] > 0)
+            {
+                tasques.add(new Tasca(vs[t], es[t], limit));
+            }
+        }
+        return tasques;
     }
 
-    private boolean calcBetw(Graph<Integer, Double> g, HashMap<Integer, HashMap<Integer, Double>> dists)
+    /**
+     * Mira si s'ha de deixar d'eliminar arestes segons el criteri de parada
+     *
+     * @param criteri Criteri de parada
+     * @return Cert si cal aturar-se
+     */
+    private boolean aturar(stopMode criteri)
     {
-        boolean connected = false;
-        // Per cada vertex
-        ArrayList<Integer> vertexs = g.getVertexs();
-        for(Integer v : vertexs)
+        switch(criteri)
+        {
+            case TargetP:
+                return picPassat && arribatAP();
+            case ModularityPeak:
+                return picPassat;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Mira si la modularitat ja ha passat el seu maxim. Les primeres
+     * divisions solen separar vertexs aillats i la fan oscil·lar prop de 0,
+     * aixi que nomes es considera passat quan ha caigut per sota de la meitat
+     * d'un maxim que ja indica estructura de comunitats
+     *
+     * @return Cert si la modularitat actual indica que el pic ja ha passat
+     */
+    private boolean passatPic()
+    {
+        return millorModularitat > MODULARITAT_MINIMA && modularitat < millorModularitat / 2;
+    }
+
+    /**
+     * Mira si ja s'han eliminat prou arestes per respondre p: el nivell mes
+     * proper a p ja es definitiu perque l'actual l'ha superat
+     *
+     * @return Cert si els passos seguents ja no canvien la resposta per p
+     */
+    private boolean arribatAP()
+    {
+        return nivellActual > p && closestNivell() < nivellActual;
+    }
+
+    /**
+     * Compta els components connexos del graf inicial i la seva modularitat
+     */
+    private void iniciarComponents()
+    {
+        int n = vertexs.size();
+        UnionFind uf = new UnionFind(n);
+        for(int e = 0; e < origen.length; e++)
+        {
+            uf.union(origen[e], desti[e]);
+        }
+        components = uf.getConjunts();
+        nivellComponents = new int[n + 1];
+        Arrays.fill(nivellComponents, -1);
+        nivellComponents[components] = 0;
+        cua = new int[n];
+        visitat = new int[n];
+        recorreguts = new AtomicInteger();
+        // Etiquetes de component compactes, del 0 al components - 1
+        etiqueta = new int[n];
+        Arrays.fill(etiqueta, -1);
+        int[] arrel = new int[n];
+        Arrays.fill(arrel, -1);
+        int c = 0;
+        for(int v = 0; v < n; v++)
+        {
+            int r = uf.find(v);
+            if(arrel[r] == -1)
+            {
+                arrel[r] = c++;
+            }
+            etiqueta[v] = arrel[r];
+        }
+        // Modularitat sobre el graf original: cada aresta suma el seu pes als
+        // dos extrems, i dues vegades a dins del seu component
+        forca = new double[n];
+        intraCom = new double[n];
+        grauCom = new double[n];
+        pesTotal = 0;
+        for(int e = 0; e < origen.length; e++)
+        {
+            forca[origen[e]] += pes[e];
+            forca[desti[e]] += pes[e];
+            grauCom[etiqueta[origen[e]]] += 2 * pes[e];
+            intraCom[etiqueta[origen[e]]] += 2 * pes[e];
+            pesTotal += 2 * pes[e];
+        }
+        modularitat = 0;
+        for(int i = 0; i < components; i++)
+        {
+            modularitat += termeModularitat(i);
+        }
+        millorModularitat = modularitat;
+        millorNivell = 0;
+    }
+
+    /**
+     * Contribucio d'un component a la modularitat
+     *
+     * @param c Etiqueta del component
+     * @return Valor de la contribucio
+     */
+    private double termeModularitat(int c)
+    {
+        if(pesTotal == 0)
+        {
+            return 0;
+        }
+        return intraCom[c] / pesTotal - (grauCom[c] / pesTotal) * (grauCom[c] / pesTotal);
+    }
+
+    /**
+     * Separa del component c els vertexs que hi ha a la cua despres de
+     * recorrer, que passen a tenir l'etiqueta nova, i actualitza la
+     * modularitat
+     *
+     * @param c Etiqueta del component que s'ha dividit
+     * @param nova Etiqueta del component nou
+     * @param midaRecorregut Nombre de vertexs a la cua
+     */
+    private void separar(int c, int nova, int midaRecorregut)
+    {
+        modularitat -= termeModularitat(c);
+        for(int i = 0; i < midaRecorregut; i++)
+        {
+            etiqueta[cua[i]] = nova;
+        }
+        double intra = 0;
+        double creuat = 0;
+        for(int i = 0; i < midaRecorregut; i++)
+        {
+            int v = cua[i];
+            grauCom[nova] += forca[v];
+            for(int s = adjInici[v]; s < adjInici[v + 1]; s++)
+            {
+                int e = adjAresta[s];
+                int w = adjVei[s];
+                if(w == v)
+                {
+                    intra += 2 * pes[e];
+                }
+                else if(etiqueta[w] == nova)
+                {
+                    // Les arestes internes es veuen des dels dos extrems
+                    intra += pes[e];
+                }
+                else if(etiqueta[w] == c)
+                {
+                    creuat += pes[e];
+                }
+            }
+        }
+        intraCom[nova] = intra;
+        intraCom[c] -= intra + 2 * creuat;
+        grauCom[c] -= grauCom[nova];
+        modularitat += termeModularitat(c) + termeModularitat(nova);
+    }
+
+    /**
+     * Mira si hi ha cami entre dos vertexs nomes per arestes vives
+     *
+     * @param a Index del vertex origen
+     * @param b Index del vertex desti
+     * @param cua Cua del recorregut, hi queden els vertexs visitats
+     * @param marcaRecorregut Marca unica d'aquest recorregut
+     * @return -1 si estan al mateix component, o el nombre de vertexs del
+     * component de a que queden a la cua
+     */
+    private int recorrer(int a, int b, int[] cua, int marcaRecorregut)
+    {
+        // Cada recorregut te la seva marca, aixi no cal netejar el vector
+        int cap = 0;
+        int fi = 0;
+        cua[fi++] = a;
+        visitat[a] = marcaRecorregut;
+        while(cap < fi)
+        {
+            int v = cua[cap++];
+            for(int s = adjInici[v]; s < adjInici[v + 1]; s++)
+            {
+                int w = adjVei[s];
+                if(viva[adjAresta[s]] && visitat[w] != marcaRecorregut)
+                {
+                    if(w == b)
+                    {
+                        return -1;
+                    }
+                    visitat[w] = marcaRecorregut;
+                    cua[fi++] = w;
+                }
+            }
+        }
+        return fi;
+    }
+
+    /**
+     * Obte el nivell (percentatge d'arestes eliminades) a partir del qual el
+     * graf queda dividit en k components
+     *
+     * @param k Nombre de components
+     * @return Percentatge, o -1 si l'algorisme no arriba a k components
+     */
+    public int getLevelForComponents(int k)
+    {
+        if(nivellComponents == null || k < 0 || k >= nivellComponents.length)
+        {
+            return -1;
+        }
+        return nivellComponents[k];
+    }
+
+    /**
+     * Obte el nombre de components connexos del graf despres de l'ultim pas
+     *
+     * @return Nombre de components
+     */
+    public int getComponents()
+    {
+        return components;
+    }
+
+    /**
+     * Obte el nivell (percentatge d'arestes eliminades) on s'ha aturat
+     * l'algorisme
+     *
+     * @return Percentatge de l'ultim pas calculat
+     */
+    public int getStopLevel()
+    {
+        return nivellActual;
+    }
+
+    /**
+     * Obte el nivell amb la modularitat mes alta. Amb TargetP i
+     * ModularityPeak l'algorisme no s'atura fins que la modularitat ha passat
+     * el pic, aixi que es el pic de tot el dendrograma
+     *
+     * @return Percentatge del millor nivell
+     */
+    public int getBestLevel()
+    {
+        return millorNivell;
+    }
+
+    /**
+     * Obte la modularitat mes alta dels nivells calculats
+     *
+     * @return Modularitat del millor nivell
+     */
+    public double getBestModularity()
+    {
+        return millorModularitat;
+    }
+
+    /**
+     * Indexa les arestes del graf: cada aresta no dirigida rep un identificador
+     * i es construeixen les llistes d'adjacencia compactes sobre aquests
+     * identificadors
+     *
+     * @param g Graf del que obtenim les arestes
+     */
+    private void construirArestes(Graph<Integer, Double> g)
+    {
+        vertexs = new ArrayList<Integer>(g.getVertexs());
+        int n = vertexs.size();
+        HashMap<Integer, Integer> index = new HashMap<Integer, Integer>(n * 2);
+        int maxArestes = 0;
+        for(int i = 0; i < n; i++)
+        {
+            index.put(vertexs.get(i), i);
+            maxArestes += g.getEdges(vertexs.get(i)).size();
+        }
+        origen = new int[maxArestes];
+        desti = new int[maxArestes];
+        pes = new double[maxArestes];
+        int m = 0;
+        int[] grau = new int[n];
+        for(int i = 0; i < n; i++)
         {
-            HashMap<Integer, Double> hm = new HashMap<Integer, Double>();
-            HashMap<Integer, Double> edges = g.getEdges(v);
-            Iterator<Integer> keys = edges.keySet().iterator();
-            while(keys.hasNext())
+            for(Entry<Integer, Double> edge : g.getEdges(vertexs.get(i)).entrySet())
             {
-                if(!connected)
+                Integer j = index.get(edge.getKey());
+                // Cada aresta no dirigida nomes es guarda des del seu extrem menor
+                if(j != null && j >= i)
                 {
-                    connected = true;
+                    origen[m] = i;
+                    desti[m] = j;
+                    pes[m] = edge.getValue();
+                    grau[i]++;
+                    if(j != i)
+                    {
+                        grau[j]++;
+                    }
+                    m++;
                 }
-                Integer k = keys.next();
-                Double edge = edges.get(k);
-                hm.put(k, 1 / edge);
             }
-            // Afegir la llista d'adjacencies al hashmap
-            dists.put(v, hm);
         }
-        // Si no hi ha cap aresta, retornem fals
-        if(!connected)
+        origen = Arrays.copyOf(origen, m);
+        desti = Arrays.copyOf(desti, m);
+        pes = Arrays.copyOf(pes, m);
+        viva = new boolean[m];
+        Arrays.fill(viva, true);
+        betw = new double[m];
+        adjInici = new int[n + 1];
+        for(int i = 0; i < n; i++)
         {
-            return false;
+            adjInici[i + 1] = adjInici[i] + grau[i];
+        }
+        adjVei = new int[adjInici[n]];
+        adjAresta = new int[adjInici[n]];
+        dist = new double[adjInici[n]];
+        int[] pos = Arrays.copyOf(adjInici, n);
+        for(int e = 0; e < m; e++)
+        {
+            adjVei[pos[origen[e]]] = desti[e];
+            adjAresta[pos[origen[e]]++] = e;
+            if(origen[e] != desti[e])
+            {
+                adjVei[pos[desti[e]]] = origen[e];
+                adjAresta[pos[desti[e]]++] = e;
+            }
+        }
+        marca = new int[n];
+        Arrays.fill(marca, -1);
+        totsVertexs = new int[n];
+        for(int i = 0; i < n; i++)
+        {
+            totsVertexs[i] = i;
+        }
+        totesArestes = new int[m];
+        for(int e = 0; e < m; e++)
+        {
+            totesArestes[e] = e;
+        }
+    }
+
+    /**
+     * Calcula la "betweenness" de les arestes d'un conjunt de vertexs. Nomes
+     * llegeix i escriu posicions dels vertexs i arestes donats, aixi que es
+     * pot cridar a la vegada per components diferents.
+     *
+     * @param vs Vertexs, en ordre creixent
+     * @param nv Nombre de vertexs
+     * @param es Arestes d'aquests vertexs
+     * @param ne Nombre d'arestes
+     */
+    private void calcBetw(int[] vs, int nv, int[] es, int ne)
+    {
+        // Distancia inicial de cada aresta dirigida
+        for(int i = 0; i < nv; i++)
+        {
+            int v = vs[i];
+            for(int s = adjInici[v]; s < adjInici[v + 1]; s++)
+            {
+                dist[s] = 1 / pes[adjAresta[s]];
+            }
         }
         // Per cada vertex
-        for(Integer v : vertexs)
+        for(int i = 0; i < nv; i++)
         {
-            // Obtenir les seves arestes
-            Iterator<Integer> keys = dists.get(v).keySet().iterator();
-            while(keys.hasNext())
+            int v = vs[i];
+            // Marquem els veins de V amb la posicio de l'aresta que hi porta
+            for(int s = adjInici[v]; s < adjInici[v + 1]; s++)
             {
-                Integer key = keys.next();
+                if(viva[adjAresta[s]])
+                {
+                    marca[adjVei[s]] = s;
+                }
+            }
+            for(int s = adjInici[v]; s < adjInici[v + 1]; s++)
+            {
+                if(!viva[adjAresta[s]])
+                {
+                    continue;
+                }
+                int key = adjVei[s];
                 // Per cada vei de V, mirar si hi ha un cami mes curt mitjançant un vei en comu de V i de KEY
-                Iterator<Integer> keysSub = dists.get(key).keySet().iterator();
-                while(keysSub.hasNext())
+                for(int t = adjInici[key]; t < adjInici[key + 1]; t++)
                 {
-                    Integer keySub = keysSub.next();
-                    if(!dists.get(v).containsKey(keySub))
+                    if(!viva[adjAresta[t]] || marca[adjVei[t]] == -1)
                     {
                         continue;
                     }
                     // Si KEYSUB es vei comu, mirar la suma de les distancies
-                    Double sum = dists.get(key).get(keySub) + dists.get(key).get(keySub);
+                    double sum = dist[t] + dist[t];
                     // Si la suma es menor que la distancia actual de V a KEY, modificar-la
-                    if(dists.get(v).get(key) > sum)
+                    if(dist[s] > sum)
                     {
-                        dists.get(v).put(key, sum);
+                        dist[s] = sum;
                     }
                 }
             }
+            // Nomes es desmarquen els veins per arestes vives, que son del
+            // mateix component
+            for(int s = adjInici[v]; s < adjInici[v + 1]; s++)
+            {
+                if(viva[adjAresta[s]])
+                {
+                    marca[adjVei[s]] = -1;
+                }
+            }
+        }
+        // Cada aresta no dirigida es queda amb el valor mes alt dels seus dos sentits
+        for(int i = 0; i < ne; i++)
+        {
+            betw[es[i]] = Double.NEGATIVE_INFINITY;
+        }
+        for(int i = 0; i < nv; i++)
+        {
+            int v = vs[i];
+            for(int s = adjInici[v]; s < adjInici[v + 1]; s++)
+            {
+                int e = adjAresta[s];
+                if(viva[e] && dist[s] > betw[e])
+                {
+                    betw[e] = dist[s];
+                }
+            }
+        }
+    }
+
+    /**
+     * Busca l'aresta viva amb la "betweenness" mes alta. Les arestes ja
+     * eliminades tenen valor -infinit i no es seleccionen mai. En cas
+     * d'empat es queda la primera.
+     *
+     * @param es Arestes on buscar, en ordre creixent
+     * @param ne Nombre d'arestes
+     * @return Identificador de l'aresta
+     */
+    private int arestaMaxima(int[] es, int ne)
+    {
+        int millor = -1;
+        double valor = Double.NEGATIVE_INFINITY;
+        for(int i = 0; i < ne; i++)
+        {
+            if(betw[es[i]] > valor)
+            {
+                valor = betw[es[i]];
+                millor = es[i];
+            }
+        }
+        if(millor == -1)
+        {
+            // Totes les arestes vives tenen valor -infinit o NaN
+            for(int i = 0; millor == -1; i++)
+            {
+                if(viva[es[i]])
+                {
+                    millor = es[i];
+                }
+            }
         }
-        return true;
+        return millor;
     }
 
     /**
-     * Select solution for the user
+     * Select solution for the user. The components for the chosen level are
+     * rebuilt by replaying the removed edges in reverse order.
      *
      * @param p Integer between 0 and 100
      * @return Correct graph solution for user.
@@ -148,79 +817,69 @@ public class GirvanNewman extends Algorithm
     public ArrayList<ArrayList<Integer>> obtain()
     {
         ArrayList<ArrayList<Integer>> coms = new ArrayList<ArrayList<Integer>>();
-        Graph<Integer, Double> graf = closestGraph();
-        ArrayList<Integer> visitats = new ArrayList<Integer>();
-        if(graf == null)
+        if(pasNivell == null)
         {
             return coms;
         }
-        ArrayList<Integer> vs = graf.getVertexs();
-        for(Integer v : vs)
+        // Si l'algorisme s'ha aturat abans d'arribar a p, el continuem
+        if(vives > 0 && !arribatAP())
         {
-            ArrayList<Integer> current = new ArrayList<Integer>();
-            if(visitats.contains(v))
-            {
-                continue;
-            }
-            current.add(v);
-            Stack<Integer> sgV = new Stack<Integer>();
-            sgV.push(v);
-            while(!sgV.isEmpty())
+            continuar(stopMode.TargetP);
+        }
+        int pas = pasNivell[closestNivell()];
+        int n = vertexs.size();
+        UnionFind uf = new UnionFind(n);
+        // Les arestes que no s'han eliminat mai hi son a tots els nivells
+        for(int e = 0; e < origen.length; e++)
+        {
+            if(viva[e])
             {
-                Integer vertex = sgV.pop();
-                HashMap<Integer, Double> edges = graf.getEdges(vertex);
-                Iterator<Integer> it = edges.keySet().iterator();
-                while(it.hasNext())
-                {
-                    Integer next = it.next();
-                    Double n = edges.get(next);
-                    if(visitats.contains(next))
-                    {
-                        continue;
-                    }
-                    visitats.add(next);
-                    if(!current.contains(vertex))
-                    {
-                        current.add(vertex);
-                    }
-                    if(!current.contains(next))
-                    {
-                        current.add(next);
-                    }
-                    sgV.push(next);
-                }
+                uf.union(origen[e], desti[e]);
             }
-            coms.add(current);
         }
-        for(int i = 0; i < coms.size(); i++)
+        // Tornem a afegir, de l'ultima a la primera, les arestes eliminades despres del pas triat
+        for(int i = numEliminades - 1; i >= pas; i--)
+        {
+            int e = eliminades[i];
+            uf.union(origen[e], desti[e]);
+        }
+        // Una comunitat per cada representant, en l'ordre dels vertexs
+        int[] comunitat = new int[n];
+        Arrays.fill(comunitat, -1);
+        for(int i = 0; i < n; i++)
         {
-            if(coms.get(i).isEmpty())
+            int arrel = uf.find(i);
+            if(comunitat[arrel] == -1)
             {
-                coms.remove(coms.get(i));
+                comunitat[arrel] = coms.size();
+                coms.add(new ArrayList<Integer>());
             }
+            coms.get(comunitat[arrel]).add(vertexs.get(i));
         }
         return coms;
     }
 
-    private Graph<Integer, Double> closestGraph()
+    /**
+     * Obte el nivell calculat mes proper a p. Si n'hi ha dos a la mateixa
+     * distancia es queda el mes baix, el que te menys arestes eliminades
+     *
+     * @return Percentatge del nivell
+     */
+    private int closestNivell()
     {
-        Graph<Integer, Double> graf = new Graph<Integer, Double>();
-        if(graphs.containsKey(p))
+        if(p >= 0 && p < pasNivell.length && pasNivell[p] != -1)
         {
-            return graphs.get(p);
+            return p;
         }
-        Iterator<Integer> iK = graphs.keySet().iterator();
         Integer closest = 0;
-        while(iK.hasNext())
+        for(int next = 0; next < pasNivell.length; next++)
         {
-            Integer next = iK.next();
-            if(abs(next - p) < (abs(closest - p)))
+            if(pasNivell[next] != -1 && abs(next - p) < (abs(closest - p)))
             {
                 closest = next;
             }
         }
-        graf = graphs.get(closest);
-        return graf;
+        return closest;
     }
 
     private Integer abs(Integer i)
@@ -231,4 +890,275 @@ public class GirvanNewman extends Algorithm
         }
         return i;
     }
+
+    /**
+     * Seqüencia d'arestes eliminades per una tasca, amb la "betweenness" que
+     * tenien en el moment d'eliminar-les
+     */
+    private static class Sequencia
+    {
+        private int[] arestes;
+        private double[] valors;
+        private int mida;
+        // Cert si alguna tasca s'ha aturat pel limit de passos
+        private boolean truncada;
+
+        public Sequencia(int capacitat)
+        {
+            arestes = new int[Math.max(1, capacitat)];
+            valors = new double[Math.max(1, capacitat)];
+            mida = 0;
+            truncada = false;
+        }
+
+        public void afegir(int e, double valor)
+        {
+            if(mida == arestes.length)
+            {
+                arestes = Arrays.copyOf(arestes, mida * 2);
+                valors = Arrays.copyOf(valors, mida * 2);
+            }
+            arestes[mida] = e;
+            valors[mida] = valor;
+            ++mida;
+        }
+
+        /**
+         * Obte el tros [desde, fins) de la seqüencia
+         */
+        public Sequencia tros(int desde, int fins)
+        {
+            Sequencia res = new Sequencia(fins - desde);
+            for(int i = desde; i < fins; i++)
+            {
+                res.afegir(arestes[i], valors[i]);
+            }
+            res.truncada = truncada;
+            return res;
+        }
+
+        /**
+         * Concatena a i b
+         */
+        public static Sequencia concatenar(Sequencia a, Sequencia b)
+        {
+            Sequencia res = new Sequencia(a.mida + b.mida);
+            for(int i = 0; i < a.mida; i++)
+            {
+                res.afegir(a.arestes[i], a.valors[i]);
+            }
+            for(int i = 0; i < b.mida; i++)
+            {
+                res.afegir(b.arestes[i], b.valors[i]);
+            }
+            res.truncada = a.truncada || b.truncada;
+            return res;
+        }
+
+        /**
+         * Fusiona dues seqüencies de components independents: a cada pas
+         * s'agafa la que te el valor mes alt i, en cas d'empat, l'aresta amb
+         * l'identificador mes petit, com faria arestaMaxima sobre tot el graf
+         */
+        public static Sequencia fusionar(Sequencia a, Sequencia b)
+        {
+            Sequencia res = new Sequencia(a.mida + b.mida);
+            int i = 0;
+            int j = 0;
+            while(i < a.mida && j < b.mida)
+            {
+                if(a.valors[i] > b.valors[j] || (a.valors[i] == b.valors[j] && a.arestes[i] < b.arestes[j]))
+                {
+                    res.afegir(a.arestes[i], a.valors[i]);
+                    ++i;
+                }
+                else
+                {
+                    res.afegir(b.arestes[j], b.valors[j]);
+                    ++j;
+                }
+            }
+            for(; i < a.mida; i++)
+            {
+                res.afegir(a.arestes[i], a.valors[i]);
+            }
+            for(; j < b.mida; j++)
+            {
+                res.afegir(b.arestes[j], b.valors[j]);
+            }
+            res.truncada = a.truncada || b.truncada;
+            return res;
+        }
+    }
+
+    /**
+     * Tasca que aplica l'algorisme a un conjunt de components. Quan un
+     * component es divideix en dues parts amb prou arestes, una de les parts
+     * passa a una tasca nova.
+     */
+    @SuppressWarnings("serial")
+    private class Tasca extends RecursiveTask<Sequencia>
+    {
+        private int[] vs;
+        private int nv;
+        private int[] es;
+        private int ne;
+        private int limit;
+
+        public Tasca(int[] vs, int[] es, int limit)
+        {
+            this.vs = vs;
+            this.nv = vs.length;
+            this.es = es;
+            this.ne = es.length;
+            this.limit = limit;
+        }
+
+        @Override
+        protected Sequencia compute()
+        {
+            Sequencia propia = new Sequencia(ne);
+            ArrayList<Tasca> filles = new ArrayList<Tasca>();
+            ArrayList<Integer> punts = new ArrayList<Integer>();
+            int[] cuaTasca = new int[nv];
+            int vivesTasca = ne;
+            while(vivesTasca > 0)
+            {
+                if(propia.mida == limit)
+                {
+                    propia.truncada = true;
+                    break;
+                }
+                calcBetw(vs, nv, es, ne);
+                int e = arestaMaxima(es, ne);
+                propia.afegir(e, betw[e]);
+                viva[e] = false;
+                --vivesTasca;
+                if(origen[e] == desti[e])
+                {
+                    continue;
+                }
+                int marcaRecorregut = recorreguts.incrementAndGet();
+                int mida = recorrer(origen[e], desti[e], cuaTasca, marcaRecorregut);
+                if(mida == -1)
+                {
+                    continue;
+                }
+                int arestesPart = arestesVives(cuaTasca, mida);
+                if(arestesPart >= LLINDAR_PARALLEL && vivesTasca - arestesPart >= LLINDAR_PARALLEL)
+                {
+                    Tasca filla = separarTasca(cuaTasca, mida, marcaRecorregut);
+                    vivesTasca -= arestesPart;
+                    punts.add(propia.mida);
+                    filles.add(filla);
+                    filla.fork();
+                }
+            }
+            // La seqüencia propia es divideix pels punts on s'han creat les
+            // filles i, des de l'ultima, es fusiona cada filla amb el que ve
+            // despres del seu punt
+            int k = punts.size();
+            Sequencia acc = propia.tros(k > 0 ? punts.get(k - 1) : 0, propia.mida);
+            for(int i = k - 1; i >= 0; i--)
+            {
+                acc = Sequencia.fusionar(filles.get(i).join(), acc);
+                acc = Sequencia.concatenar(propia.tros(i > 0 ? punts.get(i - 1) : 0, punts.get(i)), acc);
+            }
+            return acc;
+        }
+
+        /**
+         * Compta les arestes vives d'una part del component
+         */
+        private int arestesVives(int[] part, int mida)
+        {
+            int bucles = 0;
+            int extrems = 0;
+            for(int i = 0; i < mida; i++)
+            {
+                int v = part[i];
+                for(int s = adjInici[v]; s < adjInici[v + 1]; s++)
+                {
+                    if(viva[adjAresta[s]])
+                    {
+                        if(adjVei[s] == v)
+                        {
+                            ++bucles;
+                        }
+                        else
+                        {
+                            ++extrems;
+                        }
+                    }
+                }
+            }
+            return bucles + extrems / 2;
+        }
+
+        /**
+         * Treu de la tasca els vertexs marcats pel recorregut i les seves
+         * arestes, i en crea una tasca nova
+         */
+        private Tasca separarTasca(int[] part, int mida, int marcaRecorregut)
+        {
+            int[] vsFilla = Arrays.copyOf(part, mida);
+            Arrays.sort(vsFilla);
+            int[] esFilla = new int[ne];
+            int neFilla = 0;
+            int nvPropi = 0;
+            for(int i = 0; i < nv; i++)
+            {
+                if(visitat[vs[i]] != marcaRecorregut)
+                {
+                    vs[nvPropi++] = vs[i];
+                }
+            }
+            int nePropi = 0;
+            for(int i = 0; i < ne; i++)
+            {
+                int e = es[i];
+                if(!viva[e])
+                {
+                    continue;
+                }
+                if(visitat[origen[e]] == marcaRecorregut)
+                {
+                    esFilla[neFilla++] = e;
+                }
+                else
+                {
+                    es[nePropi++] = e;
+                }
+            }
+            nv = nvPropi;
+            ne = nePropi;
+            return new Tasca(vsFilla, Arrays.copyOf(esFilla, neFilla), limit);
+        }
+    }
+
+    /**
+     * Tasca que executa les tasques inicials i en fusiona els resultats
+     */
+    @SuppressWarnings("serial")
+    private static class TascaArrel extends RecursiveTask<Sequencia>
+    {
+        private ArrayList<Tasca> tasques;
+
+        public TascaArrel(ArrayList<Tasca> tasques)
+        {
+            this.tasques = tasques;
+        }
+
+        @Override
+        protected Sequencia compute()
+        {
+            invokeAll(tasques);
+            Sequencia res = new Sequencia(0);
+            for(Tasca t : tasques)
+            {
+                res = Sequencia.fusionar(res, t.join());
+            }
+            return res;
+        }
+    }
 }
\ No newline at end of file
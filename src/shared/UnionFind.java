@@ -0,0 +1,80 @@
+package shared;
+
+/**
+ * Estructura union-find (conjunts disjunts) sobre vectors d'enters, amb unio
+ * per mida i compressio de camins
+ *
+ * @author Cluster 7 sub 1
+ */
+class UnionFind
+{
+    private int[] pare;
+    private int[] mida;
+    private int conjunts;
+
+    /**
+     * Crea n conjunts d'un sol element, del 0 al n - 1
+     * @param n Nombre d'elements
+     */
+    public UnionFind(int n)
+    {
+        pare = new int[n];
+        mida = new int[n];
+        for(int i = 0; i < n; i++)
+        {
+            pare[i] = i;
+            mida[i] = 1;
+        }
+        conjunts = n;
+    }
+
+    /**
+     * Obte el representant del conjunt de l'element x
+     * @param x L'element
+     * @return Representant del seu conjunt
+     */
+    public int find(int x)
+    {
+        while(pare[x] != x)
+        {
+            pare[x] = pare[pare[x]];
+            x = pare[x];
+        }
+        return x;
+    }
+
+    /**
+     * Uneix els conjunts dels elements a i b
+     * @param a Un element
+     * @param b L'altre element
+     * @return Cert si estaven en conjunts diferents
+     */
+    public boolean union(int a, int b)
+    {
+        int ra = find(a);
+        int rb = find(b);
+        if(ra == rb)
+        {
+            return false;
+        }
+        if(mida[ra] < mida[rb])
+        {
+            int aux = ra;
+            ra = rb;
+            rb = aux;
+        }
+        pare[rb] = ra;
+        mida[ra] += mida[rb];
+        --conjunts;
+        return true;
+    }
+
+    /**
+     * Obte el nombre de conjunts disjunts actuals
+     * @return Nombre de conjunts
+     */
+    public int getConjunts()
+    {
+        return conjunts;
+    }
+}